@@ -0,0 +1,175 @@
+package mentcare.dao;
+
+import mentcare.models.Patient;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reader throughput against thread count, and a stress check that readers racing a writer
+ * only ever see whole batches. Runs on the data/ directory of the working directory with the
+ * storage chosen by mentcare.storage, like the application; the stress check saves and then
+ * deletes two BENCH patients, so run it on a copy of the data.
+ *
+ * Usage: ReaderScalingBenchmark [seconds per step] [max threads]
+ */
+public class ReaderScalingBenchmark {
+    private static final String FIRST = "BENCH-A";
+    private static final String SECOND = "BENCH-B";
+    
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+            : Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        
+        PatientDAO patients = new PatientDAO();
+        ConsultationDAO consultations = new ConsultationDAO();
+        List<String> ids = new ArrayList<>();
+        for (Patient patient : patients.getAllPatients()) {
+            ids.add(patient.getPatientId());
+        }
+        if (ids.isEmpty()) {
+            System.out.println("No patients in data/; nothing to read");
+            return;
+        }
+        
+        System.out.println("cores=" + Runtime.getRuntime().availableProcessors()
+            + " patients=" + ids.size() + " seconds/step=" + seconds);
+        System.out.println("threads  reads/s  scaling");
+        // The first step also warms up the JIT, so it is run twice
+        run(1, seconds, ids, patients, consultations);
+        double base = run(1, seconds, ids, patients, consultations);
+        report(1, base, base);
+        for (int threads = 2; threads <= maxThreads; threads *= 2) {
+            report(threads, run(threads, seconds, ids, patients, consultations), base);
+        }
+        
+        stress(seconds, Math.max(2, maxThreads), patients);
+    }
+    
+    // Reads per second over all threads: a patient by ID and that patient's consultations
+    private static double run(int threads, int seconds, List<String> ids, PatientDAO patients,
+                              ConsultationDAO consultations) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong reads = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread reader = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                awaitQuietly(start);
+                while (!stop.get()) {
+                    String id = ids.get(random.nextInt(ids.size()));
+                    patients.findPatientById(id);
+                    consultations.getConsultationsByPatient(id);
+                    count += 2;
+                }
+                reads.addAndGet(count);
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        return reads.get() / ((System.nanoTime() - began) / 1e9);
+    }
+    
+    private static void report(int threads, double readsPerSecond, double base) {
+        System.out.printf("%7d %8.0f %8.2f%n", threads, readsPerSecond, readsPerSecond / base);
+    }
+    
+    /**
+     * One writer saves both BENCH patients in each batch with the same review date, then moves
+     * the date on; readers fetch both and count the times the dates differ, which would mean a
+     * batch was seen half applied. Reads of one ID must also never go back to an older date.
+     */
+    private static void stress(int seconds, int threads, PatientDAO patients) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong observations = new AtomicLong();
+        AtomicLong torn = new AtomicLong();
+        AtomicLong backwards = new AtomicLong();
+        save(patients, 0);
+        
+        Thread writer = new Thread(() -> {
+            for (long day = 1; !stop.get(); day++) {
+                save(patients, day);
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread reader = new Thread(() -> {
+                long lastSeen = 0;
+                while (!stop.get()) {
+                    // Read in the order the batch is written, so a torn batch shows second > first
+                    long first = reviewDay(patients.findPatientById(FIRST));
+                    long second = reviewDay(patients.findPatientById(SECOND));
+                    if (second < first) {
+                        backwards.incrementAndGet();
+                    }
+                    if (first < lastSeen) {
+                        backwards.incrementAndGet();
+                    }
+                    lastSeen = first;
+                    for (Patient patient : patients.getAllPatients()) {
+                        if (patient.getPatientId().equals(FIRST)) {
+                            first = reviewDay(patient);
+                        } else if (patient.getPatientId().equals(SECOND)) {
+                            second = reviewDay(patient);
+                        }
+                    }
+                    if (first != second) {
+                        torn.incrementAndGet();
+                    }
+                    observations.incrementAndGet();
+                }
+            });
+            readers.add(reader);
+        }
+        writer.start();
+        readers.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        patients.deleteAll(List.of(FIRST, SECOND));
+        
+        System.out.println("stress: readers=" + threads + " observations=" + observations.get()
+            + " torn=" + torn.get() + " backwards=" + backwards.get()
+            + (torn.get() == 0 && backwards.get() == 0 ? " OK" : " FAILED"));
+    }
+    
+    private static void save(PatientDAO patients, long day) {
+        List<Patient> batch = new ArrayList<>(2);
+        for (String id : new String[] {FIRST, SECOND}) {
+            Patient patient = new Patient(id, id, "Benchmark", "None", LocalDate.of(1970, 1, 1), "None");
+            patient.setReviewDate(LocalDate.ofEpochDay(day));
+            batch.add(patient);
+        }
+        patients.saveAll(batch);
+    }
+    
+    private static long reviewDay(Patient patient) {
+        return patient != null && patient.getReviewDate() != null ? patient.getReviewDate().toEpochDay() : -1;
+    }
+    
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
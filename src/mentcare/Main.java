@@ -1,10 +1,13 @@
 package mentcare;
 
+import mentcare.dao.DataContext;
 import mentcare.gui.LoginFrame;
+import mentcare.utils.Log;
 import javax.swing.SwingUtilities;
 //import javax.swing.UIManager;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class Main {
     public static void main(String[] args) {
@@ -18,6 +21,12 @@ public class Main {
         // Create data directory and sample files if they don't exist
         initializeDataFiles();
         
+        // Parse the data files in the background while the login screen is up
+        DataContext.getInstance().loadAll();
+        
+        // Fold pending journal entries into the CSV files on exit
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> DataContext.getInstance().checkpointAll()));
+        
         // Start the application
         SwingUtilities.invokeLater(() -> {
             new LoginFrame().setVisible(true);
@@ -36,7 +45,7 @@ public class Main {
         
         // Create patients file with corrected structure
         createFileIfNotExists("data/patients.csv", 
-            new String[]{"patientId", "nhNumber", "name", "address", "city", "dob", "contact", "risk", "sectioned", "sectionedDate", "reviewDate"});
+            new String[]{"patientId", "nhNumber", "name", "address", "city", "dob", "contact", "risk", "sectioned", "sectionedDate", "reviewDate", "practice"});
         
         // Create other data files
         createFileIfNotExists("data/consultations.csv",
@@ -55,15 +64,21 @@ public class Main {
             List<String[]> initialData = new ArrayList<>();
             initialData.add(header);
             mentcare.utils.CSVUtils.writeCSV(filename, initialData);
-            System.out.println("Created file: " + filename);
+            Log.info("Created file: " + filename);
+        }
+    }
+    
+    // Stops after the second row instead of reading the whole file
+    private static boolean hasOnlyHeader(String filename) {
+        try (Stream<String[]> rows = mentcare.utils.CSVUtils.streamCSV(filename)) {
+            return rows.limit(2).count() <= 1;
         }
     }
     
     private static void addSampleData() {
         // Check if users.csv only has header
-        List<String[]> users = mentcare.utils.CSVUtils.readCSV("data/users.csv");
-        if (users.size() <= 1) {
-            System.out.println("Adding sample users to users.csv");
+        if (hasOnlyHeader("data/users.csv")) {
+            Log.info("Adding sample users to users.csv");
             List<String[]> sampleUsers = new ArrayList<>();
             
             // Add header first
@@ -76,17 +91,16 @@ public class Main {
             sampleUsers.add(new String[]{"USER004", "sysadmin", "password123", "SYSTEM_ADMIN", "System Administrator", "sysadmin@hospital.com"});
             
             mentcare.utils.CSVUtils.writeCSV("data/users.csv", sampleUsers);
-            System.out.println("Sample users added successfully");
+            Log.info("Sample users added successfully");
         }
         
         // Check if patients.csv only has header
-        List<String[]> patients = mentcare.utils.CSVUtils.readCSV("data/patients.csv");
-        if (patients.size() <= 1) {
-            System.out.println("Adding sample patients to patients.csv");
+        if (hasOnlyHeader("data/patients.csv")) {
+            Log.info("Adding sample patients to patients.csv");
             List<String[]> samplePatients = new ArrayList<>();
             
             // Add header first
-            samplePatients.add(new String[]{"patientId", "nhNumber", "name", "address", "city", "dob", "contact", "risk", "sectioned", "sectionedDate", "reviewDate"});
+            samplePatients.add(new String[]{"patientId", "nhNumber", "name", "address", "city", "dob", "contact", "risk", "sectioned", "sectionedDate", "reviewDate", "practice"});
             
             // Add sample patients with corrected structure
             samplePatients.add(new String[]{"PAT001", "NH123456789", "John Doe", "123 Main St", "Edinburgh", "1980-05-15", "555-0123", "LOW", "false", "", ""});
@@ -94,13 +108,12 @@ public class Main {
             samplePatients.add(new String[]{"PAT003", "NH456789123", "Robert Brown", "789 Pine Rd", "Aberdeen", "1990-12-10", "555-0789", "MEDIUM", "false", "", ""});
             
             mentcare.utils.CSVUtils.writeCSV("data/patients.csv", samplePatients);
-            System.out.println("Sample patients added successfully");
+            Log.info("Sample patients added successfully");
         }
         
         // Add sample consultations if needed
-        List<String[]> consultations = mentcare.utils.CSVUtils.readCSV("data/consultations.csv");
-        if (consultations.size() <= 1) {
-            System.out.println("Adding sample consultations to consultations.csv");
+        if (hasOnlyHeader("data/consultations.csv")) {
+            Log.info("Adding sample consultations to consultations.csv");
             List<String[]> sampleConsultations = new ArrayList<>();
             
             // Add header first
@@ -111,13 +124,12 @@ public class Main {
             sampleConsultations.add(new String[]{"CONS002", "PAT002", "2024-01-12T14:15:00", "USER001", "Patient shows signs of improvement but requires monitoring", "Bipolar Disorder", "", "Psychiatric Ward", "true"});
             
             mentcare.utils.CSVUtils.writeCSV("data/consultations.csv", sampleConsultations);
-            System.out.println("Sample consultations added successfully");
+            Log.info("Sample consultations added successfully");
         }
         
         // Add sample prescriptions if needed
-        List<String[]> prescriptions = mentcare.utils.CSVUtils.readCSV("data/prescriptions.csv");
-        if (prescriptions.size() <= 1) {
-            System.out.println("Adding sample prescriptions to prescriptions.csv");
+        if (hasOnlyHeader("data/prescriptions.csv")) {
+            Log.info("Adding sample prescriptions to prescriptions.csv");
             List<String[]> samplePrescriptions = new ArrayList<>();
             
             // Add header first
@@ -128,7 +140,7 @@ public class Main {
             samplePrescriptions.add(new String[]{"PRES002", "PAT002", "Lithium", "300mg", "Twice daily", "2024-01-12", "2024-04-12", "USER001", "true", "Regular blood tests required"});
             
             mentcare.utils.CSVUtils.writeCSV("data/prescriptions.csv", samplePrescriptions);
-            System.out.println("Sample prescriptions added successfully");
+            Log.info("Sample prescriptions added successfully");
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package mentcare.dao;
+
+/**
+ * One record inserted, updated or deleted through a DAO.
+ * Saves carry the record as saved; deletes carry only the ID.
+ */
+public final class DataChange<T> {
+    public enum Kind { INSERTED, UPDATED, DELETED }
+    
+    private final Class<T> type;
+    private final Kind kind;
+    private final String id;
+    private final T record;
+    
+    DataChange(Class<T> type, Kind kind, String id, T record) {
+        this.type = type;
+        this.kind = kind;
+        this.id = id;
+        this.record = record;
+    }
+    
+    public Class<T> getType() {
+        return type;
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    // Null for a delete
+    public T getRecord() {
+        return record;
+    }
+}
@@ -0,0 +1,98 @@
+package mentcare.dao;
+
+import mentcare.utils.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Process-wide channel for record changes made through the DAOs, so views can patch the rows
+ * that changed instead of reloading everything. Listeners subscribe per record type and are
+ * called on the thread that made the change, once it is stored; Swing listeners move to the
+ * event thread themselves. A listener that throws is logged and the others still run.
+ */
+final class DataChangeBus {
+    private final List<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+    
+    <T> void subscribe(Class<T> type, Consumer<? super DataChange<T>> listener) {
+        subscriptions.add(new Subscription<>(type, listener));
+    }
+    
+    void unsubscribe(Consumer<?> listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+    
+    /**
+     * Changes a save made, given the IDs the repository reported as replaced; every other
+     * record was inserted. Empty when nobody listens for the type.
+     */
+    <T> List<DataChange<T>> saves(Class<T> type, Collection<? extends T> records,
+                                  Function<T, String> idFunction, Set<String> replaced) {
+        if (!hasSubscribers(type)) {
+            return Collections.emptyList();
+        }
+        List<DataChange<T>> changes = new ArrayList<>(records.size());
+        for (T record : records) {
+            String id = idFunction.apply(record);
+            DataChange.Kind kind = replaced.contains(id) ? DataChange.Kind.UPDATED : DataChange.Kind.INSERTED;
+            changes.add(new DataChange<>(type, kind, id, record));
+        }
+        return changes;
+    }
+    
+    // One change per ID the repository reported as removed, so deleting a missing ID tells nobody
+    <T> List<DataChange<T>> deletes(Class<T> type, Collection<String> removed) {
+        if (!hasSubscribers(type)) {
+            return Collections.emptyList();
+        }
+        List<DataChange<T>> changes = new ArrayList<>(removed.size());
+        for (String id : removed) {
+            changes.add(new DataChange<>(type, DataChange.Kind.DELETED, id, null));
+        }
+        return changes;
+    }
+    
+    void publish(List<? extends DataChange<?>> changes) {
+        for (DataChange<?> change : changes) {
+            for (Subscription<?> subscription : subscriptions) {
+                try {
+                    subscription.deliver(change);
+                } catch (RuntimeException e) {
+                    Log.error("Error handling " + change.getKind() + " of " + change.getId() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private boolean hasSubscribers(Class<?> type) {
+        for (Subscription<?> subscription : subscriptions) {
+            if (subscription.type == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static final class Subscription<T> {
+        final Class<T> type;
+        final Consumer<? super DataChange<T>> listener;
+        
+        Subscription(Class<T> type, Consumer<? super DataChange<T>> listener) {
+            this.type = type;
+            this.listener = listener;
+        }
+        
+        @SuppressWarnings("unchecked")
+        void deliver(DataChange<?> change) {
+            if (change.getType() == type) {
+                listener.accept((DataChange<T>) change);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package mentcare.dao;
+
+import mentcare.dao.csv.CSVStorageProvider;
+import mentcare.dao.spi.ConsultationRepository;
+import mentcare.dao.spi.PatientRepository;
+import mentcare.dao.spi.PrescriptionRepository;
+import mentcare.dao.spi.StorageProvider;
+import mentcare.dao.spi.UserRepository;
+import mentcare.utils.Log;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide holder of the storage backend.
+ * The provider named by the mentcare.storage system property (default "csv") is looked up
+ * once through ServiceLoader, and every DAO instance reads through its repositories, so
+ * data is loaded once no matter how many panels and dialogs create their own DAOs.
+ * Changes made through any DAO are announced on the one change bus held here.
+ */
+public final class DataContext {
+    public static final String STORAGE_PROPERTY = "mentcare.storage";
+    // One per entity store
+    private static final int LOADER_THREADS = 4;
+    
+    private static final DataContext INSTANCE = new DataContext();
+    
+    private final StorageProvider storage;
+    private final DataChangeBus changes = new DataChangeBus();
+    
+    private DataContext() {
+        this.storage = loadProvider(System.getProperty(STORAGE_PROPERTY, CSVStorageProvider.NAME));
+    }
+    
+    public static DataContext getInstance() {
+        return INSTANCE;
+    }
+    
+    private static StorageProvider loadProvider(String name) {
+        for (StorageProvider provider : ServiceLoader.load(StorageProvider.class)) {
+            if (provider.name().equalsIgnoreCase(name)) {
+                return provider;
+            }
+        }
+        Log.warn("Storage provider '" + name + "' not found. Using CSV files.");
+        return new CSVStorageProvider();
+    }
+    
+    PatientRepository patients() { return storage.patients(); }
+    ConsultationRepository consultations() { return storage.consultations(); }
+    PrescriptionRepository prescriptions() { return storage.prescriptions(); }
+    UserRepository users() { return storage.users(); }
+    DataChangeBus changes() { return changes; }
+    
+    // Loads the four stores side by side on a small pool, users first so login is not held up.
+    // Each store builds its own indexes as soon as it is parsed; a DAO call that arrives
+    // before its store is ready simply waits for it.
+    public CompletableFuture<Void> loadAll() {
+        int threads = Math.min(LOADER_THREADS, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "mentcare-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.currentTimeMillis();
+        CompletableFuture<Void> loaded = CompletableFuture.allOf(
+            CompletableFuture.runAsync(() -> users().load(), executor),
+            CompletableFuture.runAsync(() -> patients().load(), executor),
+            CompletableFuture.runAsync(() -> consultations().load(), executor),
+            CompletableFuture.runAsync(() -> prescriptions().load(), executor)
+        );
+        return loaded.whenComplete((result, error) -> {
+            executor.shutdown();
+            if (error != null) {
+                Log.error("Error loading data: " + error.getMessage());
+            } else {
+                Log.info("Data loaded in " + (System.currentTimeMillis() - start) + " ms");
+            }
+        });
+    }
+    
+    // Make every pending change durable in the backing store
+    public void checkpointAll() {
+        storage.checkpoint();
+    }
+    
+    // Force every repository to re-read its backing store on next access
+    public void invalidateAll() {
+        storage.invalidate();
+    }
+}
@@ -1,138 +1,114 @@
 package mentcare.dao;
 
+import mentcare.dao.spi.PatientRepository;
 import mentcare.models.Patient;
-import mentcare.utils.CSVUtils;
+import mentcare.utils.Log;
+import mentcare.utils.StripedLock;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class PatientDAO {
-    private static final String PATIENTS_CSV = "data/patients.csv";
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
+    // Shared by every instance: checking a National Health Number and saving it must not
+    // interleave with another save of the same number
+    private static final StripedLock NHS_NUMBER_LOCKS = new StripedLock(64);
+    
+    private final PatientRepository repository = DataContext.getInstance().patients();
+    private final DataChangeBus changes = DataContext.getInstance().changes();
+    
+    // Called after every patient saved or deleted through any PatientDAO
+    public void addChangeListener(Consumer<? super DataChange<Patient>> listener) {
+        changes.subscribe(Patient.class, listener);
+    }
+    
+    public void removeChangeListener(Consumer<? super DataChange<Patient>> listener) {
+        changes.unsubscribe(listener);
+    }
     
     public List<Patient> getAllPatients() {
-        List<Patient> patients = new ArrayList<>();
-        List<String[]> rows = CSVUtils.readCSV(PATIENTS_CSV);
-        
-        // Skip header row if exists
-        int startIndex = 0;
-        if (!rows.isEmpty() && rows.get(0)[0].equals("patientId")) {
-            startIndex = 1;
-        }
-        
-        for (int i = startIndex; i < rows.size(); i++) {
-            String[] row = rows.get(i);
-            if (row.length >= 6) {
-                try {
-                    // Debug: Print the row to see what's being read
-                    System.out.println("Reading patient row: " + String.join(",", row));
-                    
-                    String patientId = row[0];
-                    String nationalHealthNumber = row[1];
-                    String name = row[2];
-                    
-                    // Combine address fields (index 3 and 4) since they contain city names
-                    String address = row[3];
-                    if (row.length > 4 && !row[4].isEmpty()) {
-                        address += ", " + row[4]; // Add city to address
-                    }
-                    
-                    // Date of birth is now at index 5
-                    String dobStr = row[5];
-                    String contactDetails = row[6];
-                    
-                    // Parse date of birth
-                    LocalDate dateOfBirth = LocalDate.parse(dobStr, DATE_FORMATTER);
-                    
-                    Patient patient = new Patient(patientId, nationalHealthNumber, name, address, dateOfBirth, contactDetails);
-                    
-                    // Set additional fields if available
-                    if (row.length > 7 && !row[7].isEmpty()) {
-                        try {
-                            patient.setRiskAssessment(Patient.RiskLevel.valueOf(row[7]));
-                        } catch (IllegalArgumentException e) {
-                            System.err.println("Invalid risk level: " + row[7] + ". Using LOW as default.");
-                            patient.setRiskAssessment(Patient.RiskLevel.LOW);
-                        }
-                    }
-                    
-                    if (row.length > 8 && !row[8].isEmpty()) {
-                        patient.setSectioned(Boolean.parseBoolean(row[8]));
-                    }
-                    
-                    if (row.length > 9 && !row[9].isEmpty()) {
-                        patient.setSectionedDate(LocalDate.parse(row[9], DATE_FORMATTER));
-                    }
-                    
-                    if (row.length > 10 && !row[10].isEmpty()) {
-                        patient.setReviewDate(LocalDate.parse(row[10], DATE_FORMATTER));
-                    }
-                    
-                    patients.add(patient);
-                    System.out.println("Successfully loaded patient: " + name);
-                    
-                } catch (Exception e) {
-                    System.err.println("Error parsing patient row: " + String.join(",", row));
-                    System.err.println("Error message: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
-        }
-        
-        System.out.println("Total patients loaded: " + patients.size());
+        List<Patient> patients = repository.findAll();
+        Log.info("Total patients loaded: " + patients.size());
         return patients;
     }
     
+    // Lazily evaluated where the backend allows it; close the stream when done
+    public Stream<Patient> streamPatients() {
+        return repository.stream();
+    }
+    
     public void savePatient(Patient patient) {
-        List<Patient> patients = getAllPatients();
-        
-        // Remove existing patient if present
-        patients.removeIf(p -> p.getPatientId().equals(patient.getPatientId()));
-        patients.add(patient);
-        
-        saveAllPatients(patients);
+        String nationalHealthNumber = patient.getNationalHealthNumber();
+        List<DataChange<Patient>> saved;
+        NHS_NUMBER_LOCKS.lock(nationalHealthNumber);
+        try {
+            // National Health Numbers identify a single patient
+            Patient existing = findPatientByNationalHealthNumber(nationalHealthNumber);
+            if (existing != null && !existing.getPatientId().equals(patient.getPatientId())) {
+                throw new IllegalArgumentException("National Health Number " + nationalHealthNumber
+                    + " is already registered to patient " + existing.getPatientId());
+            }
+            boolean replaced = repository.save(patient);
+            saved = savesOf(List.of(patient), replaced ? Set.of(patient.getPatientId()) : Set.of());
+        } finally {
+            NHS_NUMBER_LOCKS.unlock(nationalHealthNumber);
+        }
+        changes.publish(saved);
     }
     
-    private void saveAllPatients(List<Patient> patients) {
-        List<String[]> rows = new ArrayList<>();
-        
-        // Add header - updated to match the actual CSV structure
-        rows.add(new String[]{
-            "patientId", "nhNumber", "name", "address", "city", "dob", "contact", 
-            "risk", "sectioned", "sectionedDate", "reviewDate"
-        });
-        
+    public void saveAll(Collection<Patient> patients) {
+        List<String> nationalHealthNumbers = new ArrayList<>(patients.size());
         for (Patient patient : patients) {
-            // Split address into street and city for CSV storage
-            String[] addressParts = patient.getAddress().split(", ", 2);
-            String streetAddress = addressParts[0];
-            String city = addressParts.length > 1 ? addressParts[1] : "";
-            
-            String[] row = {
-                patient.getPatientId(),
-                patient.getNationalHealthNumber(),
-                patient.getName(),
-                streetAddress,
-                city,
-                patient.getDateOfBirth().format(DATE_FORMATTER),
-                patient.getContactDetails(),
-                patient.getRiskAssessment().name(),
-                String.valueOf(patient.isSectioned()),
-                patient.getSectionedDate() != null ? patient.getSectionedDate().format(DATE_FORMATTER) : "",
-                patient.getReviewDate() != null ? patient.getReviewDate().format(DATE_FORMATTER) : ""
-            };
-            rows.add(row);
+            nationalHealthNumbers.add(patient.getNationalHealthNumber());
         }
-        
-        CSVUtils.writeCSV(PATIENTS_CSV, rows);
+        List<DataChange<Patient>> saved;
+        int[] held = NHS_NUMBER_LOCKS.lockAll(nationalHealthNumbers);
+        try {
+            // Check the whole batch first so a conflict leaves nothing half-saved
+            Map<String, String> batchIdsByNhsNumber = new HashMap<>();
+            for (Patient patient : patients) {
+                String nationalHealthNumber = patient.getNationalHealthNumber();
+                String batchId = batchIdsByNhsNumber.putIfAbsent(nationalHealthNumber, patient.getPatientId());
+                Patient existing = findPatientByNationalHealthNumber(nationalHealthNumber);
+                String otherId = batchId != null ? batchId : existing != null ? existing.getPatientId() : null;
+                if (otherId != null && !otherId.equals(patient.getPatientId())) {
+                    throw new IllegalArgumentException("National Health Number " + nationalHealthNumber
+                        + " is already registered to patient " + otherId);
+                }
+            }
+            saved = savesOf(patients, repository.saveAll(patients));
+        } finally {
+            NHS_NUMBER_LOCKS.unlockAll(held);
+        }
+        changes.publish(saved);
+    }
+    
+    public void deleteAll(Collection<String> patientIds) {
+        changes.publish(deletesOf(repository.deleteAll(patientIds)));
     }
     
     public Patient findPatientById(String patientId) {
-        return getAllPatients().stream()
-                .filter(p -> p.getPatientId().equals(patientId))
-                .findFirst()
-                .orElse(null);
+        return repository.findById(patientId);
+    }
+    
+    public Patient findPatientByNationalHealthNumber(String nationalHealthNumber) {
+        return repository.findByNationalHealthNumber(nationalHealthNumber);
+    }
+    
+    public boolean isNationalHealthNumberInUse(String nationalHealthNumber) {
+        return findPatientByNationalHealthNumber(nationalHealthNumber) != null;
+    }
+    
+    private List<DataChange<Patient>> savesOf(Collection<Patient> patients, Set<String> replaced) {
+        return changes.saves(Patient.class, patients, Patient::getPatientId, replaced);
+    }
+    
+    private List<DataChange<Patient>> deletesOf(Collection<String> removed) {
+        return changes.deletes(Patient.class, removed);
     }
-}
\ No newline at end of file
+}
@@ -1,120 +1,78 @@
 package mentcare.dao;
 
+import mentcare.dao.spi.PrescriptionRepository;
 import mentcare.models.Prescription;
-import mentcare.utils.CSVUtils;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class PrescriptionDAO {
-    private static final String PRESCRIPTIONS_CSV = "data/prescriptions.csv";
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
+    private final PrescriptionRepository repository = DataContext.getInstance().prescriptions();
+    private final DataChangeBus changes = DataContext.getInstance().changes();
+    
+    // Called after every prescription saved or deleted through any PrescriptionDAO
+    public void addChangeListener(Consumer<? super DataChange<Prescription>> listener) {
+        changes.subscribe(Prescription.class, listener);
+    }
+    
+    public void removeChangeListener(Consumer<? super DataChange<Prescription>> listener) {
+        changes.unsubscribe(listener);
+    }
     
     public List<Prescription> getAllPrescriptions() {
-        List<Prescription> prescriptions = new ArrayList<>();
-        List<String[]> rows = CSVUtils.readCSV(PRESCRIPTIONS_CSV);
-        
-        // Skip header row if exists
-        int startIndex = 0;
-        if (!rows.isEmpty() && rows.get(0)[0].equals("prescriptionId")) {
-            startIndex = 1;
-        }
-        
-        for (int i = startIndex; i < rows.size(); i++) {
-            String[] row = rows.get(i);
-            if (row.length >= 7) {
-                try {
-                    Prescription prescription = new Prescription(
-                        row[0], // prescriptionId
-                        row[1], // patientId
-                        row[2], // drugName
-                        row[3], // dosage
-                        row[4], // frequency
-                        LocalDate.parse(row[5], DATE_FORMATTER), // startDate
-                        row[7]  // prescriberId
-                    );
-                    
-                    // End date
-                    if (row.length > 6 && !row[6].isEmpty()) {
-                        prescription.setEndDate(LocalDate.parse(row[6], DATE_FORMATTER));
-                    }
-                    
-                    // Repeat status
-                    if (row.length > 8 && !row[8].isEmpty()) {
-                        prescription.setRepeat(Boolean.parseBoolean(row[8]));
-                    }
-                    
-                    // Comments
-                    if (row.length > 9 && !row[9].isEmpty()) {
-                        prescription.setComments(row[9]);
-                    }
-                    
-                    prescriptions.add(prescription);
-                } catch (Exception e) {
-                    System.err.println("Error parsing prescription row: " + String.join(",", row));
-                    e.printStackTrace();
-                }
-            }
-        }
-        
-        return prescriptions;
+        return repository.findAll();
+    }
+    
+    // Lazily evaluated where the backend allows it; close the stream when done
+    public Stream<Prescription> streamPrescriptions() {
+        return repository.stream();
     }
     
     public Prescription getPrescriptionById(String prescriptionId) {
-        return getAllPrescriptions().stream()
-                .filter(p -> p.getPrescriptionId().equals(prescriptionId))
-                .findFirst()
-                .orElse(null);
+        return repository.findById(prescriptionId);
     }
     
     public void savePrescription(Prescription prescription) {
-        List<Prescription> prescriptions = getAllPrescriptions();
-        
-        // Remove existing prescription if present
-        prescriptions.removeIf(p -> p.getPrescriptionId().equals(prescription.getPrescriptionId()));
-        prescriptions.add(prescription);
-        
-        saveAllPrescriptions(prescriptions);
+        boolean replaced = repository.save(prescription);
+        changes.publish(savesOf(List.of(prescription),
+            replaced ? Set.of(prescription.getPrescriptionId()) : Set.of()));
     }
     
-    private void saveAllPrescriptions(List<Prescription> prescriptions) {
-        List<String[]> rows = new ArrayList<>();
-        
-        // Add header
-        rows.add(new String[]{
-            "prescriptionId", "patientId", "drugName", "dosage", "frequency", 
-            "startDate", "endDate", "prescriberId", "isRepeat", "comments"
-        });
-        
-        for (Prescription prescription : prescriptions) {
-            String[] row = {
-                prescription.getPrescriptionId(),
-                prescription.getPatientId(),
-                prescription.getDrugName(),
-                prescription.getDosage(),
-                prescription.getFrequency(),
-                prescription.getStartDate().format(DATE_FORMATTER),
-                prescription.getEndDate() != null ? prescription.getEndDate().format(DATE_FORMATTER) : "",
-                prescription.getPrescriberId(),
-                String.valueOf(prescription.isRepeat()),
-                prescription.getComments() != null ? prescription.getComments() : ""
-            };
-            rows.add(row);
-        }
-        
-        CSVUtils.writeCSV(PRESCRIPTIONS_CSV, rows);
+    public void deletePrescription(String prescriptionId) {
+        boolean removed = repository.delete(prescriptionId);
+        changes.publish(deletesOf(removed ? List.of(prescriptionId) : List.of()));
     }
     
-    public void deletePrescription(String prescriptionId) {
-        List<Prescription> prescriptions = getAllPrescriptions();
-        prescriptions.removeIf(p -> p.getPrescriptionId().equals(prescriptionId));
-        saveAllPrescriptions(prescriptions);
+    public void saveAll(Collection<Prescription> prescriptions) {
+        changes.publish(savesOf(prescriptions, repository.saveAll(prescriptions)));
+    }
+    
+    public void deleteAll(Collection<String> prescriptionIds) {
+        changes.publish(deletesOf(repository.deleteAll(prescriptionIds)));
+    }
+    
+    // Prescriptions whose start to end dates (inclusive, no end date = ongoing) include the date
+    public List<Prescription> findActiveOn(LocalDate date) {
+        return findActiveBetween(date, date);
+    }
+    
+    // Prescriptions valid on at least one day from 'from' to 'to' inclusive, by start date
+    public List<Prescription> findActiveBetween(LocalDate from, LocalDate to) {
+        return repository.findActiveBetween(from, to);
     }
     
     public List<Prescription> getPrescriptionsByPatient(String patientId) {
-        return getAllPrescriptions().stream()
-                .filter(p -> p.getPatientId().equals(patientId))
-                .toList();
+        return repository.findByPatient(patientId);
+    }
+    
+    private List<DataChange<Prescription>> savesOf(Collection<Prescription> prescriptions, Set<String> replaced) {
+        return changes.saves(Prescription.class, prescriptions, Prescription::getPrescriptionId, replaced);
+    }
+    
+    private List<DataChange<Prescription>> deletesOf(Collection<String> removed) {
+        return changes.deletes(Prescription.class, removed);
     }
-}
\ No newline at end of file
+}
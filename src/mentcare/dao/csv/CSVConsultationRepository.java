@@ -0,0 +1,145 @@
+package mentcare.dao.csv;
+
+import mentcare.dao.spi.ConsultationRepository;
+import mentcare.models.Consultation;
+import mentcare.utils.CSVRecord;
+import mentcare.utils.ISODates;
+import mentcare.utils.Log;
+import mentcare.utils.StringDictionary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+class CSVConsultationRepository extends CSVRepository<Consultation> implements ConsultationRepository {
+    static final String CONSULTATIONS_CSV = "consultations.csv";
+    static final String[] HEADER = {
+        "consultationId", "patientId", "dateTime", "staffIds", 
+        "impressions", "diagnoses", "prescriptions", "referrals", "updated"
+    };
+    
+    // Shared instances of repeated column values
+    private static final StringDictionary STAFF_IDS = new StringDictionary();
+    private static final StringDictionary DIAGNOSES = new StringDictionary();
+    
+    // Binary form of the fields read back from the CSV
+    static final SnapshotFile.Codec<Consultation> SNAPSHOT_CODEC = new SnapshotFile.Codec<Consultation>() {
+        @Override
+        public void write(DataOutput out, Consultation consultation, SnapshotFile.StringCodes codes) throws IOException {
+            SnapshotFile.writeString(out, consultation.getConsultationId());
+            SnapshotFile.writeString(out, consultation.getPatientId());
+            SnapshotFile.writeDateTime(out, consultation.getDateTime());
+            codes.writeAll(out, STAFF_IDS, consultation.getStaffIds());
+            String impressions = consultation.getSubjectiveImpressions();
+            SnapshotFile.writeString(out, impressions != null && !impressions.isEmpty() ? impressions : null);
+            codes.writeAll(out, DIAGNOSES, consultation.getDiagnoses());
+            out.writeBoolean(consultation.isRecordUpdated());
+        }
+        
+        @Override
+        public Consultation read(DataInput in, SnapshotFile.StringCodes codes) throws IOException {
+            Consultation consultation = new Consultation(
+                SnapshotFile.readString(in),  // consultationId
+                SnapshotFile.readString(in),  // patientId
+                SnapshotFile.readDateTime(in) // dateTime
+            );
+            codes.readAll(in, STAFF_IDS, consultation.getStaffIds());
+            consultation.setSubjectiveImpressions(SnapshotFile.readString(in));
+            codes.readAll(in, DIAGNOSES, consultation.getDiagnoses());
+            consultation.setRecordUpdated(in.readBoolean());
+            return consultation;
+        }
+    };
+    
+    private final EntityStore.MultiIndex<Consultation> byPatient;
+    private final EntityStore.SortedIndex<Consultation> byDateTime;
+    
+    CSVConsultationRepository(String directory) {
+        super(new EntityStore<>(directory + "/" + CONSULTATIONS_CSV, HEADER, CSVConsultationRepository::parseRow,
+            CSVConsultationRepository::toRow, Consultation::getConsultationId, SNAPSHOT_CODEC,
+            Consultation::new));
+        byPatient = store.addMultiIndex(Consultation::getPatientId);
+        byDateTime = store.addSortedIndex(CSVConsultationRepository::dateTimeKey);
+    }
+    
+    @Override
+    public List<Consultation> findByPatient(String patientId) {
+        return store.findAllByKey(byPatient, patientId);
+    }
+    
+    @Override
+    public Map<String, Integer> countByPatient() {
+        return store.countByKey(byPatient);
+    }
+    
+    // Resolved to the second
+    @Override
+    public List<Consultation> findBetween(LocalDateTime from, LocalDateTime to) {
+        return store.findInRange(byDateTime, from != null ? epochSecond(from) : null,
+            to != null ? epochSecond(to) : null);
+    }
+    
+    static Long dateTimeKey(Consultation consultation) {
+        return consultation.getDateTime() != null ? epochSecond(consultation.getDateTime()) : null;
+    }
+    
+    private static long epochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+    
+    static Consultation parseRow(CSVRecord row) {
+        if (row.size() < 3) {
+            return null;
+        }
+        try {
+            Consultation consultation = new Consultation(
+                row.get(0), // consultationId
+                row.get(1), // patientId
+                row.getDateTime(2) // dateTime
+            );
+            
+            // Staff IDs
+            if (row.size() > 3 && !row.isEmpty(3)) {
+                row.split(3, ';', STAFF_IDS, consultation.getStaffIds());
+            }
+            
+            // Subjective impressions
+            if (row.size() > 4 && !row.isEmpty(4)) {
+                consultation.setSubjectiveImpressions(row.get(4));
+            }
+            
+            // Diagnoses
+            if (row.size() > 5 && !row.isEmpty(5)) {
+                row.split(5, ';', DIAGNOSES, consultation.getDiagnoses());
+            }
+            
+            // Record updated status
+            if (row.size() > 8 && !row.isEmpty(8)) {
+                consultation.setRecordUpdated(Boolean.parseBoolean(row.get(8)));
+            }
+            
+            return consultation;
+        } catch (Exception e) {
+            Log.error("Error parsing consultation row: " + row, e);
+            return null;
+        }
+    }
+    
+    static String[] toRow(Consultation consultation) {
+        return new String[]{
+            consultation.getConsultationId(),
+            consultation.getPatientId(),
+            ISODates.formatDateTime(consultation.getDateTime()),
+            String.join(";", consultation.getStaffIds()),
+            consultation.getSubjectiveImpressions() != null ? consultation.getSubjectiveImpressions() : "",
+            String.join(";", consultation.getDiagnoses()),
+            "", // prescriptions - would need separate handling
+            String.join(";", consultation.getReferrals()),
+            String.valueOf(consultation.isRecordUpdated())
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package mentcare.dao.csv;
+
+import mentcare.utils.CSVUtils;
+
+import java.io.File;
+import java.util.Collections;
+
+/**
+ * One directory of patient-linked CSV files: the patients of one practice (or hash bucket)
+ * together with their consultations and prescriptions, each with its own journal and snapshot.
+ */
+final class CSVPartition {
+    private final String name;
+    final CSVPatientRepository patients;
+    final CSVConsultationRepository consultations;
+    final CSVPrescriptionRepository prescriptions;
+    
+    private CSVPartition(String name, String directory) {
+        this.name = name;
+        this.patients = new CSVPatientRepository(directory);
+        this.consultations = new CSVConsultationRepository(directory);
+        this.prescriptions = new CSVPrescriptionRepository(directory);
+    }
+    
+    // Opens the partition in directory, creating the directory and empty files if needed
+    static CSVPartition open(File directory) {
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        createIfMissing(directory, CSVPatientRepository.PATIENTS_CSV, CSVPatientRepository.HEADER);
+        createIfMissing(directory, CSVConsultationRepository.CONSULTATIONS_CSV, CSVConsultationRepository.HEADER);
+        createIfMissing(directory, CSVPrescriptionRepository.PRESCRIPTIONS_CSV, CSVPrescriptionRepository.HEADER);
+        return new CSVPartition(directory.getName(), directory.getPath());
+    }
+    
+    private static void createIfMissing(File directory, String filename, String[] header) {
+        File file = new File(directory, filename);
+        if (!file.exists()) {
+            CSVUtils.writeCSV(file.getPath(), Collections.singletonList(header));
+        }
+    }
+    
+    String getName() { return name; }
+    
+    void load() {
+        patients.load();
+        consultations.load();
+        prescriptions.load();
+    }
+    
+    void checkpoint() {
+        patients.checkpoint();
+        consultations.checkpoint();
+        prescriptions.checkpoint();
+    }
+    
+    void invalidate() {
+        patients.invalidate();
+        consultations.invalidate();
+        prescriptions.invalidate();
+    }
+}
@@ -0,0 +1,161 @@
+package mentcare.dao.csv;
+
+import mentcare.dao.spi.PatientRepository;
+import mentcare.models.Patient;
+import mentcare.utils.CSVRecord;
+import mentcare.utils.ISODates;
+import mentcare.utils.Log;
+import mentcare.utils.StringDictionary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.function.UnaryOperator;
+
+class CSVPatientRepository extends CSVRepository<Patient> implements PatientRepository {
+    static final String PATIENTS_CSV = "patients.csv";
+    static final String[] HEADER = {
+        "patientId", "nhNumber", "name", "address", "city", "dob", "contact", 
+        "risk", "sectioned", "sectionedDate", "reviewDate", "practice"
+    };
+    
+    // Keep patients off the heap (see OffHeapPatientTable); for populations in the millions
+    static final String OFF_HEAP_PROPERTY = "mentcare.patients.offHeap";
+    
+    // Shared instances of repeated column values
+    private static final StringDictionary PRACTICES = new StringDictionary();
+    
+    // Binary form of the fields stored in the CSV
+    static final SnapshotFile.Codec<Patient> SNAPSHOT_CODEC = new SnapshotFile.Codec<Patient>() {
+        @Override
+        public void write(DataOutput out, Patient patient, SnapshotFile.StringCodes codes) throws IOException {
+            SnapshotFile.writeString(out, patient.getPatientId());
+            SnapshotFile.writeString(out, patient.getNationalHealthNumber());
+            SnapshotFile.writeString(out, patient.getName());
+            SnapshotFile.writeString(out, patient.getAddress());
+            SnapshotFile.writeDate(out, patient.getDateOfBirth());
+            SnapshotFile.writeString(out, patient.getContactDetails());
+            out.writeByte(patient.getRiskAssessment().ordinal());
+            out.writeBoolean(patient.isSectioned());
+            SnapshotFile.writeDate(out, patient.getSectionedDate());
+            SnapshotFile.writeDate(out, patient.getReviewDate());
+            codes.write(out, PRACTICES, patient.getRegisteredPractice());
+        }
+        
+        @Override
+        public Patient read(DataInput in, SnapshotFile.StringCodes codes) throws IOException {
+            Patient patient = new Patient(
+                SnapshotFile.readString(in), // patientId
+                SnapshotFile.readString(in), // nationalHealthNumber
+                SnapshotFile.readString(in), // name
+                SnapshotFile.readString(in), // address
+                SnapshotFile.readDate(in),   // dateOfBirth
+                SnapshotFile.readString(in)  // contactDetails
+            );
+            patient.setRiskAssessment(Patient.RiskLevel.values()[in.readByte()]);
+            patient.setSectioned(in.readBoolean());
+            patient.setSectionedDate(SnapshotFile.readDate(in));
+            patient.setReviewDate(SnapshotFile.readDate(in));
+            patient.setRegisteredPractice(codes.read(in, PRACTICES));
+            return patient;
+        }
+    };
+    
+    private final EntityStore.UniqueIndex<Patient> byNhsNumber;
+    
+    CSVPatientRepository(String directory) {
+        super(new EntityStore<>(directory + "/" + PATIENTS_CSV, HEADER, CSVPatientRepository::parseRow,
+            CSVPatientRepository::toRow, Patient::getPatientId, SNAPSHOT_CODEC,
+            // Off-heap rows are handed out as views that copy themselves before any change
+            Boolean.getBoolean(OFF_HEAP_PROPERTY) ? UnaryOperator.identity() : Patient::new,
+            Boolean.getBoolean(OFF_HEAP_PROPERTY) ? OffHeapPatientTable::new : HeapRecordTable::new));
+        byNhsNumber = store.addUniqueIndex(Patient::getNationalHealthNumber);
+    }
+    
+    @Override
+    public Patient findByNationalHealthNumber(String nationalHealthNumber) {
+        return store.findByKey(byNhsNumber, nationalHealthNumber);
+    }
+    
+    static Patient parseRow(CSVRecord row) {
+        if (row.size() < 6) {
+            return null;
+        }
+        try {
+            if (Log.isDebugEnabled()) {
+                Log.debug("Reading patient row: " + row);
+            }
+            
+            String patientId = row.get(0);
+            String nationalHealthNumber = row.get(1);
+            String name = row.get(2);
+            
+            // Combine address fields (index 3 and 4) since they contain city names
+            String address = row.get(3);
+            if (row.size() > 4 && !row.isEmpty(4)) {
+                address += ", " + row.get(4); // Add city to address
+            }
+            
+            // Date of birth is now at index 5
+            LocalDate dateOfBirth = row.getDate(5);
+            String contactDetails = row.get(6);
+            
+            Patient patient = new Patient(patientId, nationalHealthNumber, name, address, dateOfBirth, contactDetails);
+            
+            // Set additional fields if available
+            if (row.size() > 7 && !row.isEmpty(7)) {
+                try {
+                    patient.setRiskAssessment(Patient.RiskLevel.valueOf(row.get(7)));
+                } catch (IllegalArgumentException e) {
+                    Log.warn("Invalid risk level: " + row.get(7) + ". Using LOW as default.");
+                    patient.setRiskAssessment(Patient.RiskLevel.LOW);
+                }
+            }
+            
+            if (row.size() > 8 && !row.isEmpty(8)) {
+                patient.setSectioned(Boolean.parseBoolean(row.get(8)));
+            }
+            
+            if (row.size() > 9 && !row.isEmpty(9)) {
+                patient.setSectionedDate(row.getDate(9));
+            }
+            
+            if (row.size() > 10 && !row.isEmpty(10)) {
+                patient.setReviewDate(row.getDate(10));
+            }
+            
+            if (row.size() > 11 && !row.isEmpty(11)) {
+                patient.setRegisteredPractice(row.get(11, PRACTICES));
+            }
+            
+            return patient;
+        
+        } catch (Exception e) {
+            Log.error("Error parsing patient row: " + row, e);
+            return null;
+        }
+    }
+    
+    static String[] toRow(Patient patient) {
+        // Split address into street and city for CSV storage
+        String[] addressParts = patient.getAddress().split(", ", 2);
+        String streetAddress = addressParts[0];
+        String city = addressParts.length > 1 ? addressParts[1] : "";
+        
+        return new String[]{
+            patient.getPatientId(),
+            patient.getNationalHealthNumber(),
+            patient.getName(),
+            streetAddress,
+            city,
+            ISODates.formatDate(patient.getDateOfBirth()),
+            patient.getContactDetails(),
+            patient.getRiskAssessment().name(),
+            String.valueOf(patient.isSectioned()),
+            patient.getSectionedDate() != null ? ISODates.formatDate(patient.getSectionedDate()) : "",
+            patient.getReviewDate() != null ? ISODates.formatDate(patient.getReviewDate()) : "",
+            patient.getRegisteredPractice() != null ? patient.getRegisteredPractice() : ""
+        };
+    }
+}
@@ -0,0 +1,144 @@
+package mentcare.dao.csv;
+
+import mentcare.dao.spi.PrescriptionRepository;
+import mentcare.models.Prescription;
+import mentcare.utils.CSVRecord;
+import mentcare.utils.ISODates;
+import mentcare.utils.Log;
+import mentcare.utils.StringDictionary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+class CSVPrescriptionRepository extends CSVRepository<Prescription> implements PrescriptionRepository {
+    static final String PRESCRIPTIONS_CSV = "prescriptions.csv";
+    static final String[] HEADER = {
+        "prescriptionId", "patientId", "drugName", "dosage", "frequency", 
+        "startDate", "endDate", "prescriberId", "isRepeat", "comments"
+    };
+    
+    // Shared instances of repeated column values
+    private static final StringDictionary DRUG_NAMES = new StringDictionary();
+    private static final StringDictionary DOSAGES = new StringDictionary();
+    private static final StringDictionary FREQUENCIES = new StringDictionary();
+    private static final StringDictionary PRESCRIBER_IDS = new StringDictionary();
+    
+    // Binary form of the fields stored in the CSV
+    static final SnapshotFile.Codec<Prescription> SNAPSHOT_CODEC = new SnapshotFile.Codec<Prescription>() {
+        @Override
+        public void write(DataOutput out, Prescription prescription, SnapshotFile.StringCodes codes) throws IOException {
+            SnapshotFile.writeString(out, prescription.getPrescriptionId());
+            SnapshotFile.writeString(out, prescription.getPatientId());
+            codes.write(out, DRUG_NAMES, prescription.getDrugName());
+            codes.write(out, DOSAGES, prescription.getDosage());
+            codes.write(out, FREQUENCIES, prescription.getFrequency());
+            SnapshotFile.writeDate(out, prescription.getStartDate());
+            codes.write(out, PRESCRIBER_IDS, prescription.getPrescriberId());
+            SnapshotFile.writeDate(out, prescription.getEndDate());
+            out.writeBoolean(prescription.isRepeat());
+            String comments = prescription.getComments();
+            SnapshotFile.writeString(out, comments != null && !comments.isEmpty() ? comments : null);
+        }
+        
+        @Override
+        public Prescription read(DataInput in, SnapshotFile.StringCodes codes) throws IOException {
+            Prescription prescription = new Prescription(
+                SnapshotFile.readString(in), // prescriptionId
+                SnapshotFile.readString(in), // patientId
+                codes.read(in, DRUG_NAMES),     // drugName
+                codes.read(in, DOSAGES),        // dosage
+                codes.read(in, FREQUENCIES),    // frequency
+                SnapshotFile.readDate(in),      // startDate
+                codes.read(in, PRESCRIBER_IDS)  // prescriberId
+            );
+            prescription.setEndDate(SnapshotFile.readDate(in));
+            prescription.setRepeat(in.readBoolean());
+            prescription.setComments(SnapshotFile.readString(in));
+            return prescription;
+        }
+    };
+    
+    private final EntityStore.MultiIndex<Prescription> byPatient;
+    private final IntervalIndex<Prescription> byValidity;
+    
+    CSVPrescriptionRepository(String directory) {
+        super(new EntityStore<>(directory + "/" + PRESCRIPTIONS_CSV, HEADER, CSVPrescriptionRepository::parseRow,
+            CSVPrescriptionRepository::toRow, Prescription::getPrescriptionId, SNAPSHOT_CODEC,
+            Prescription::new));
+        byPatient = store.addMultiIndex(Prescription::getPatientId);
+        byValidity = store.addIntervalIndex(CSVPrescriptionRepository::startKey, CSVPrescriptionRepository::endKey);
+    }
+    
+    @Override
+    public List<Prescription> findByPatient(String patientId) {
+        return store.findAllByKey(byPatient, patientId);
+    }
+    
+    @Override
+    public List<Prescription> findActiveBetween(LocalDate from, LocalDate to) {
+        return store.findOverlapping(byValidity, from.toEpochDay(), to.toEpochDay());
+    }
+    
+    static Long startKey(Prescription prescription) {
+        return prescription.getStartDate() != null ? prescription.getStartDate().toEpochDay() : null;
+    }
+    
+    static Long endKey(Prescription prescription) {
+        return prescription.getEndDate() != null ? prescription.getEndDate().toEpochDay() : null;
+    }
+    
+    static Prescription parseRow(CSVRecord row) {
+        if (row.size() < 7) {
+            return null;
+        }
+        try {
+            Prescription prescription = new Prescription(
+                row.get(0), // prescriptionId
+                row.get(1), // patientId
+                row.get(2, DRUG_NAMES),     // drugName
+                row.get(3, DOSAGES),        // dosage
+                row.get(4, FREQUENCIES),    // frequency
+                row.getDate(5),             // startDate
+                row.get(7, PRESCRIBER_IDS)  // prescriberId
+            );
+            
+            // End date
+            if (row.size() > 6 && !row.isEmpty(6)) {
+                prescription.setEndDate(row.getDate(6));
+            }
+            
+            // Repeat status
+            if (row.size() > 8 && !row.isEmpty(8)) {
+                prescription.setRepeat(Boolean.parseBoolean(row.get(8)));
+            }
+            
+            // Comments
+            if (row.size() > 9 && !row.isEmpty(9)) {
+                prescription.setComments(row.get(9));
+            }
+            
+            return prescription;
+        } catch (Exception e) {
+            Log.error("Error parsing prescription row: " + row, e);
+            return null;
+        }
+    }
+    
+    static String[] toRow(Prescription prescription) {
+        return new String[]{
+            prescription.getPrescriptionId(),
+            prescription.getPatientId(),
+            prescription.getDrugName(),
+            prescription.getDosage(),
+            prescription.getFrequency(),
+            ISODates.formatDate(prescription.getStartDate()),
+            prescription.getEndDate() != null ? ISODates.formatDate(prescription.getEndDate()) : "",
+            prescription.getPrescriberId(),
+            String.valueOf(prescription.isRepeat()),
+            prescription.getComments() != null ? prescription.getComments() : ""
+        };
+    }
+}
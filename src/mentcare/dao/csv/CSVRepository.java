@@ -0,0 +1,67 @@
+package mentcare.dao.csv;
+
+import mentcare.dao.spi.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Repository operations common to every entity, served by one EntityStore
+abstract class CSVRepository<T> implements Repository<T> {
+    final EntityStore<T> store;
+    
+    CSVRepository(EntityStore<T> store) {
+        this.store = store;
+    }
+    
+    @Override
+    public List<T> findAll() {
+        return store.getAll();
+    }
+    
+    // Lazily parsed when the cache is cold
+    @Override
+    public Stream<T> stream() {
+        return store.stream();
+    }
+    
+    @Override
+    public T findById(String id) {
+        return store.findById(id);
+    }
+    
+    @Override
+    public boolean save(T record) {
+        return store.save(record);
+    }
+    
+    @Override
+    public Set<String> saveAll(Collection<T> records) {
+        return store.saveAll(records);
+    }
+    
+    @Override
+    public boolean delete(String id) {
+        return store.delete(id);
+    }
+    
+    @Override
+    public Set<String> deleteAll(Collection<String> ids) {
+        return store.deleteAll(ids);
+    }
+    
+    // Parses the file and builds its indexes now rather than on first query
+    @Override
+    public void load() {
+        store.load();
+    }
+    
+    void checkpoint() {
+        store.checkpoint();
+    }
+    
+    void invalidate() {
+        store.invalidate();
+    }
+}
@@ -0,0 +1,56 @@
+package mentcare.dao.csv;
+
+import mentcare.dao.spi.ConsultationRepository;
+import mentcare.dao.spi.PatientRepository;
+import mentcare.dao.spi.PrescriptionRepository;
+import mentcare.dao.spi.StorageProvider;
+import mentcare.dao.spi.UserRepository;
+
+/**
+ * Stores each entity in a CSV file under data/, cached in memory with a write-ahead
+ * journal and a binary snapshot per file. Files are only read on first access.
+ */
+public class CSVStorageProvider implements StorageProvider {
+    public static final String NAME = "csv";
+    static final String DATA_DIRECTORY = "data";
+    
+    private final CSVPatientRepository patients = new CSVPatientRepository(DATA_DIRECTORY);
+    private final CSVConsultationRepository consultations = new CSVConsultationRepository(DATA_DIRECTORY);
+    private final CSVPrescriptionRepository prescriptions = new CSVPrescriptionRepository(DATA_DIRECTORY);
+    private final CSVUserRepository users = new CSVUserRepository(DATA_DIRECTORY);
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public PatientRepository patients() { return patients; }
+    
+    @Override
+    public ConsultationRepository consultations() { return consultations; }
+    
+    @Override
+    public PrescriptionRepository prescriptions() { return prescriptions; }
+    
+    @Override
+    public UserRepository users() { return users; }
+    
+    // Fold every pending journal into its CSV file
+    @Override
+    public void checkpoint() {
+        patients.checkpoint();
+        consultations.checkpoint();
+        prescriptions.checkpoint();
+        users.checkpoint();
+    }
+    
+    // Force every store to re-read its file on next access
+    @Override
+    public void invalidate() {
+        patients.invalidate();
+        consultations.invalidate();
+        prescriptions.invalidate();
+        users.invalidate();
+    }
+}
@@ -0,0 +1,68 @@
+package mentcare.dao.csv;
+
+import mentcare.dao.spi.UserRepository;
+import mentcare.models.User;
+import mentcare.utils.CSVRecord;
+import mentcare.utils.Log;
+
+class CSVUserRepository extends CSVRepository<User> implements UserRepository {
+    static final String USERS_CSV = "users.csv";
+    static final String[] HEADER = {"userId", "username", "password", "role", "fullName", "contactInfo"};
+    
+    CSVUserRepository(String directory) {
+        // Too small to be worth a snapshot
+        super(new EntityStore<>(directory + "/" + USERS_CSV, HEADER, CSVUserRepository::parseRow,
+            CSVUserRepository::toRow, User::getUserId, null, User::new));
+    }
+    
+    static User parseRow(CSVRecord row) {
+        if (row.size() < 5) {
+            return null;
+        }
+        try {
+            String userId = row.get(0);
+            String username = row.get(1);
+            String password = row.get(2);
+            String roleStr = row.get(3);
+            String fullName = row.get(4);
+            
+            // Never log the row itself: it holds the password
+            if (Log.isDebugEnabled()) {
+                Log.debug("Reading user " + userId + " (" + username + ")");
+            }
+            
+            // Convert role string to enum - handle case sensitivity and spaces
+            User.UserRole role;
+            try {
+                role = User.UserRole.valueOf(roleStr.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                Log.warn("Invalid role in CSV: '" + roleStr + "'. Using CLINICAL_STAFF as default.");
+                role = User.UserRole.CLINICAL_STAFF;
+            }
+            
+            User user = new User(userId, username, password, role, fullName);
+            
+            // Add contact info if available
+            if (row.size() > 5) {
+                user.setContactInfo(row.get(5));
+            }
+            
+            return user;
+        
+        } catch (Exception e) {
+            Log.error("Error parsing user row " + row.get(0), e);
+            return null;
+        }
+    }
+    
+    static String[] toRow(User user) {
+        return new String[]{
+            user.getUserId(),
+            user.getUsername(),
+            user.getPassword(),
+            user.getRole().name(),
+            user.getFullName(),
+            user.getContactInfo() != null ? user.getContactInfo() : ""
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package mentcare.dao.csv;
+
+import java.util.Arrays;
+
+/**
+ * Growable object array held in fixed-size chunks, with cheap frozen copies; the object
+ * counterpart of ChunkedIntArray. Unset elements read as null.
+ */
+final class ChunkedArray<E> {
+    private static final int SHIFT = 10;
+    private static final int CHUNK = 1 << SHIFT;
+    private static final int MASK = CHUNK - 1;
+    
+    private Object[][] chunks;
+    // Chunks also referenced by a snapshot, copied before their next write
+    private boolean[] shared;
+    
+    ChunkedArray() {
+        this(new Object[0][], new boolean[0]);
+    }
+    
+    private ChunkedArray(Object[][] chunks, boolean[] shared) {
+        this.chunks = chunks;
+        this.shared = shared;
+    }
+    
+    @SuppressWarnings("unchecked")
+    E get(int index) {
+        int chunk = index >>> SHIFT;
+        return chunk < chunks.length ? (E) chunks[chunk][index & MASK] : null;
+    }
+    
+    void set(int index, E value) {
+        writableChunk(index >>> SHIFT)[index & MASK] = value;
+    }
+    
+    // Frozen copy; it must not be written
+    ChunkedArray<E> snapshot() {
+        Arrays.fill(shared, true);
+        return new ChunkedArray<>(chunks.clone(), shared.clone());
+    }
+    
+    private Object[] writableChunk(int chunk) {
+        if (chunk >= chunks.length) {
+            int length = chunks.length;
+            int grown = Math.max(length * 2, chunk + 1);
+            chunks = Arrays.copyOf(chunks, grown);
+            shared = Arrays.copyOf(shared, grown);
+            for (int i = length; i < grown; i++) {
+                chunks[i] = new Object[CHUNK];
+            }
+        } else if (shared[chunk]) {
+            chunks[chunk] = chunks[chunk].clone();
+            shared[chunk] = false;
+        }
+        return chunks[chunk];
+    }
+}
@@ -0,0 +1,70 @@
+package mentcare.dao.csv;
+
+import java.util.Arrays;
+
+/**
+ * Growable int array held in fixed-size chunks, with cheap frozen copies.
+ * snapshot() copies only the array of chunk references and marks every chunk shared; the
+ * next write to a shared chunk copies that chunk first, so a snapshot never changes and
+ * costs its owner one chunk per chunk written afterwards. Unset elements read as the fill
+ * value. One thread writes; snapshots may be read from any thread once safely published.
+ */
+final class ChunkedIntArray {
+    private static final int SHIFT = 10;
+    private static final int CHUNK = 1 << SHIFT;
+    private static final int MASK = CHUNK - 1;
+    
+    private final int fill;
+    private int[][] chunks;
+    // Chunks also referenced by a snapshot, copied before their next write
+    private boolean[] shared;
+    
+    ChunkedIntArray(int fill) {
+        this(fill, new int[0][], new boolean[0]);
+    }
+    
+    private ChunkedIntArray(int fill, int[][] chunks, boolean[] shared) {
+        this.fill = fill;
+        this.chunks = chunks;
+        this.shared = shared;
+    }
+    
+    int get(int index) {
+        int chunk = index >>> SHIFT;
+        return chunk < chunks.length ? chunks[chunk][index & MASK] : fill;
+    }
+    
+    void set(int index, int value) {
+        writableChunk(index >>> SHIFT)[index & MASK] = value;
+    }
+    
+    // Frozen copy; it must not be written
+    ChunkedIntArray snapshot() {
+        Arrays.fill(shared, true);
+        return new ChunkedIntArray(fill, chunks.clone(), shared.clone());
+    }
+    
+    private int[] writableChunk(int chunk) {
+        if (chunk >= chunks.length) {
+            int length = chunks.length;
+            int grown = Math.max(length * 2, chunk + 1);
+            chunks = Arrays.copyOf(chunks, grown);
+            shared = Arrays.copyOf(shared, grown);
+            for (int i = length; i < grown; i++) {
+                chunks[i] = newChunk();
+            }
+        } else if (shared[chunk]) {
+            chunks[chunk] = chunks[chunk].clone();
+            shared[chunk] = false;
+        }
+        return chunks[chunk];
+    }
+    
+    private int[] newChunk() {
+        int[] chunk = new int[CHUNK];
+        if (fill != 0) {
+            Arrays.fill(chunk, fill);
+        }
+        return chunk;
+    }
+}
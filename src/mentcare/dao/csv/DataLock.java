@@ -0,0 +1,145 @@
+package mentcare.dao.csv;
+
+import mentcare.utils.Log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLockInterruptionException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Advisory lock on one data file, shared with other MentCare processes through a
+ * "<file>.lock" companion file. Readers hold it shared and writers exclusive, so a reader
+ * never sees a CSV rewrite without the matching journal truncation and two processes never
+ * append or rewrite at the same time.
+ * The companion file is locked rather than the data file because the data file is replaced
+ * by rename, which would leave the lock on the old copy. A JVM can hold only one lock per
+ * file, so threads of this process queue on a read-write lock first and the file lock is
+ * taken by the first reader or the writer. The shared lock may be taken while holding the
+ * exclusive one; upgrading from shared to exclusive is not supported.
+ * Where the file system cannot lock, the process carries on unlocked. A thread interrupted
+ * while waiting gets an UncheckedIOException with its interrupt flag set, holding nothing.
+ */
+final class DataLock {
+    private final String filename;
+    private final ReentrantReadWriteLock threads = new ReentrantReadWriteLock();
+    
+    private FileChannel channel;
+    private int readers;
+    private int writers;
+    private boolean unsupported;
+    
+    DataLock(String filename) {
+        this.filename = filename + ".lock";
+    }
+    
+    void lockShared() {
+        threads.readLock().lock();
+        try {
+            synchronized (this) {
+                if (readers == 0 && writers == 0) {
+                    acquire(true);
+                }
+                readers++;
+            }
+        } catch (RuntimeException e) {
+            threads.readLock().unlock();
+            throw e;
+        }
+    }
+    
+    void unlockShared() {
+        synchronized (this) {
+            if (--readers == 0 && writers == 0) {
+                release();
+            }
+        }
+        threads.readLock().unlock();
+    }
+    
+    void lockExclusive() {
+        threads.writeLock().lock();
+        try {
+            synchronized (this) {
+                if (writers == 0) {
+                    acquire(false);
+                }
+                writers++;
+            }
+        } catch (RuntimeException e) {
+            threads.writeLock().unlock();
+            throw e;
+        }
+    }
+    
+    void unlockExclusive() {
+        synchronized (this) {
+            if (--writers == 0) {
+                release();
+                // A shared hold taken inside the exclusive one outlived it
+                if (readers > 0) {
+                    reacquireShared();
+                }
+            }
+        }
+        threads.writeLock().unlock();
+    }
+    
+    // Blocks until no other process holds a conflicting lock; throws if interrupted meanwhile
+    private void acquire(boolean shared) {
+        if (unsupported) {
+            return;
+        }
+        try {
+            channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.lock(0, Long.MAX_VALUE, shared);
+        } catch (ClosedByInterruptException | FileLockInterruptionException e) {
+            // The interrupt closed the channel; keep the flag set for the caller
+            channel = null;
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException("Interrupted while locking " + filename, e);
+        } catch (IOException | UnsupportedOperationException e) {
+            Log.warn("Cannot lock " + filename + ", continuing without locking: " + e.getMessage());
+            unsupported = true;
+            release();
+        }
+    }
+    
+    // The readers still inside must stay covered, so an interrupt only delays this until it is held
+    private void reacquireShared() {
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (true) {
+                try {
+                    acquire(true);
+                    return;
+                } catch (UncheckedIOException e) {
+                    Thread.interrupted();
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    // Closing the channel releases the lock; the file is only open while locked
+    private void release() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.error("Error releasing " + filename + ": " + e.getMessage());
+        }
+        channel = null;
+    }
+}
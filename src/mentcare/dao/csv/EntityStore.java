@@ -0,0 +1,927 @@
+package mentcare.dao.csv;
+
+import mentcare.utils.CSVChunkParser;
+import mentcare.utils.CSVRecord;
+import mentcare.utils.CSVUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * In-memory copy of one CSV entity file.
+ * The file is parsed once and re-read only when its modification time or size changes,
+ * so repeated DAO calls are served from memory.
+ * Each record ID is interned to a dense int surrogate on load and records are held in a
+ * RecordTable indexed by it (in file order), on the heap unless the store is given another.
+ * Optional unique, multi-valued, sorted and interval indexes map other key columns to
+ * surrogates, held in chunked int arrays and treaps rather than string-keyed maps, so lookups
+ * never scan the table.
+ * Saves and deletes are appended to a per-file journal instead of rewriting the CSV;
+ * the journal is replayed on load and folded into the CSV at checkpoints.
+ * Stores with a snapshot codec also keep a binary snapshot of the CSV, which is loaded
+ * instead of parsing the CSV while the CSV is unchanged.
+ * Records go in and come out through the store's copy function, so callers may edit what they
+ * are given without touching the cached record, or any version already published.
+ * Readers never lock. Saves, deletes and reloads take the store's write lock, so writers to
+ * one entity file are serialized, and each ends by publishing a Version: the record table and
+ * indexes frozen by snapshot(), sharing all unchanged storage with the live ones. Reads use
+ * the latest published version, so a long report sees one consistent state throughout, and
+ * while a writer of this process is busy they carry on with the version before its change.
+ * A version that matched its files is trusted for RECHECK_NANOS before they are checked again,
+ * so a burst of reads, such as one lookup per table row, costs one set of file checks.
+ * Several processes may share the files: loads hold the file's DataLock shared and writes
+ * hold it exclusive, re-checking the files first so that changes made by another process
+ * are loaded before anything is appended. Snapshots are written once both locks have been
+ * released, under the CSV modification time and size recorded when the CSV was written or
+ * loaded, and skipped if the CSV has changed since.
+ */
+class EntityStore<T> {
+    // Journal entries accumulated before the CSV is rewritten
+    static final int CHECKPOINT_INTERVAL = 1000;
+    // How long a published version is trusted before its files are checked again
+    static final long RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    private final String filename;
+    private final String[] header;
+    private final Function<CSVRecord, T> rowParser;
+    private final Function<T, String[]> rowFormatter;
+    private final Function<T, String> idFunction;
+    // Identity for tables that never hold or hand out a caller's instance
+    private final UnaryOperator<T> copier;
+    private final Journal journal;
+    private final SnapshotFile.Codec<T> snapshotCodec;
+    private final String snapshotName;
+    private final Supplier<RecordTable<T>> tableFactory;
+    private final DataLock lock;
+    // Writers of this process; the DataLock orders processes
+    private final ReentrantLock writer = new ReentrantLock();
+    // Serializes snapshot files, which are written outside the write lock
+    private final Object snapshotWrite = new Object();
+    // What readers see; null until loaded
+    private final AtomicReference<Version<T>> published = new AtomicReference<>();
+    
+    private final List<Index<T>> indexes = new CopyOnWriteArrayList<>();
+    
+    // Live state, only touched under the write lock
+    private RecordTable<T> records;
+    private long loadedModified = -1;
+    private long loadedSize = -1;
+    private long loadedJournalSize = -1;
+    // Records of the CSV last written or parsed, waiting to be written to the snapshot
+    private PendingSnapshot<T> pendingSnapshot;
+    
+    EntityStore(String filename, String[] header, Function<CSVRecord, T> rowParser,
+                Function<T, String[]> rowFormatter, Function<T, String> idFunction,
+                SnapshotFile.Codec<T> snapshotCodec, UnaryOperator<T> copier) {
+        this(filename, header, rowParser, rowFormatter, idFunction, snapshotCodec, copier, HeapRecordTable::new);
+    }
+    
+    // Records are held in a table from the factory, one per load
+    EntityStore(String filename, String[] header, Function<CSVRecord, T> rowParser,
+                Function<T, String[]> rowFormatter, Function<T, String> idFunction,
+                SnapshotFile.Codec<T> snapshotCodec, UnaryOperator<T> copier,
+                Supplier<RecordTable<T>> tableFactory) {
+        this.filename = filename;
+        this.header = header;
+        this.rowParser = rowParser;
+        this.rowFormatter = rowFormatter;
+        this.idFunction = idFunction;
+        this.copier = copier;
+        this.journal = new Journal(filename + ".journal");
+        this.snapshotCodec = snapshotCodec;
+        this.snapshotName = filename + ".snapshot";
+        this.tableFactory = tableFactory;
+        this.lock = new DataLock(filename);
+    }
+    
+    /**
+     * Records in file order. When the cache is not loaded the file is parsed lazily,
+     * so a caller that stops early or only counts never materializes the table.
+     * The stream holds the file open and must be closed.
+     */
+    Stream<T> stream() {
+        Version<T> version = usableVersion();
+        if (version != null) {
+            return version.records.values().stream().map(copier);
+        }
+        
+        Map<String, CSVRecord> pending = new LinkedHashMap<>();
+        Stream<CSVRecord> csvRows;
+        // Replaying the journal resets its entry count, which writers rely on
+        writer.lock();
+        try {
+            lock.lockShared();
+            try {
+                // Changes since the last checkpoint overlay the CSV rows, keyed by the ID in the
+                // first column; a null row marks a delete
+                journal.replay(new Journal.EntryHandler() {
+                    @Override
+                    public void upsert(CSVRecord row) {
+                        pending.put(row.get(0), row);
+                    }
+                    
+                    @Override
+                    public void delete(String id) {
+                        pending.put(id, null);
+                    }
+                });
+                // A rewrite renames a new file into place, so the one opened here stays
+                // consistent with the journal once the lock is released
+                csvRows = CSVUtils.streamRecords(filename);
+            } finally {
+                lock.unlockShared();
+            }
+        } finally {
+            writer.unlock();
+        }
+        
+        boolean[] firstRow = {true};
+        Stream<T> fileRecords = csvRows
+            .filter(row -> {
+                // Skip header row if exists
+                boolean header = firstRow[0] && row.fieldEquals(0, this.header[0]);
+                firstRow[0] = false;
+                return !header;
+            })
+            .map(row -> !pending.isEmpty() && pending.containsKey(row.get(0)) ? pending.remove(row.get(0)) : row)
+            .filter(Objects::nonNull)
+            .map(rowParser)
+            .filter(Objects::nonNull);
+        
+        // Records created since the last checkpoint come last; evaluated only once the file is exhausted
+        Stream<T> newRecords = Stream.of(pending)
+            .flatMap(rows -> rows.values().stream())
+            .filter(Objects::nonNull)
+            .map(rowParser)
+            .filter(Objects::nonNull);
+        
+        return Stream.concat(fileRecords, newRecords);
+    }
+    
+    // Register a unique secondary key; must be called before the first access
+    UniqueIndex<T> addUniqueIndex(Function<T, String> keyFunction) {
+        UniqueIndex<T> index = new UniqueIndex<>(keyFunction);
+        addIndex(index);
+        return index;
+    }
+    
+    // Register an ordered numeric key for range queries; must be called before the first access
+    SortedIndex<T> addSortedIndex(Function<T, Long> keyFunction) {
+        SortedIndex<T> index = new SortedIndex<>(keyFunction);
+        addIndex(index);
+        return index;
+    }
+    
+    // Register a [start, end] key pair for overlap queries; must be called before the first access
+    IntervalIndex<T> addIntervalIndex(Function<T, Long> startFunction, Function<T, Long> endFunction) {
+        IntervalIndex<T> index = new IntervalIndex<>(startFunction, endFunction);
+        addIndex(index);
+        return index;
+    }
+    
+    // Register a non-unique secondary key; must be called before the first access
+    MultiIndex<T> addMultiIndex(Function<T, String> keyFunction) {
+        MultiIndex<T> index = new MultiIndex<>(keyFunction);
+        addIndex(index);
+        return index;
+    }
+    
+    private void addIndex(Index<T> index) {
+        writer.lock();
+        try {
+            indexes.add(index);
+            invalidate();
+        } finally {
+            writer.unlock();
+        }
+    }
+    
+    // Read the file now rather than on first access
+    void load() {
+        read();
+    }
+    
+    List<T> getAll() {
+        return copies(read().records.values());
+    }
+    
+    T findById(String id) {
+        return copy(read().records.get(id));
+    }
+    
+    T findByKey(UniqueIndex<T> index, String key) {
+        Version<T> version = read();
+        int id = version.index(indexes, index).find(key);
+        return id >= 0 ? copy(version.records.get(id)) : null;
+    }
+    
+    List<T> findAllByKey(MultiIndex<T> index, String key) {
+        Version<T> version = read();
+        IntList ids = version.index(indexes, index).find(key);
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        return collect(version, ids);
+    }
+    
+    // Records with from <= key <= to in key order; a null bound is open
+    List<T> findInRange(SortedIndex<T> index, Long from, Long to) {
+        if (from != null && to != null && from > to) {
+            return new ArrayList<>();
+        }
+        Version<T> version = read();
+        IntList ids = version.index(indexes, index).find(from != null ? from : Long.MIN_VALUE,
+            to != null ? to : Long.MAX_VALUE);
+        return collect(version, ids);
+    }
+    
+    // Records whose interval overlaps [from, to], ordered by start
+    List<T> findOverlapping(IntervalIndex<T> index, long from, long to) {
+        Version<T> version = read();
+        return collect(version, version.index(indexes, index).findOverlapping(from, to));
+    }
+    
+    // Number of records per key, read straight from the index
+    Map<String, Integer> countByKey(MultiIndex<T> index) {
+        return read().index(indexes, index).counts();
+    }
+    
+    // True if the record replaced one with the same ID
+    boolean save(T record) {
+        String[] row = rowFormatter.apply(record);
+        record = copier.apply(record);
+        boolean replaced;
+        lockForWrite();
+        try {
+            // Replaces the existing record if present, keeping its position
+            int size = records.size();
+            int id = records.put(idFunction.apply(record), record);
+            replaced = records.size() == size;
+            for (Index<T> index : indexes) {
+                index.put(id, record);
+            }
+            
+            journal.appendUpsert(row);
+            afterJournalWrite();
+        } finally {
+            unlockForWrite();
+        }
+        return replaced;
+    }
+    
+    // True if a record with the ID was removed
+    boolean delete(String id) {
+        lockForWrite();
+        try {
+            int surrogate = records.remove(id);
+            if (surrogate < 0) {
+                return false;
+            }
+            for (Index<T> index : indexes) {
+                index.remove(surrogate);
+            }
+            
+            journal.appendDelete(id);
+            afterJournalWrite();
+            return true;
+        } finally {
+            unlockForWrite();
+        }
+    }
+    
+    // Apply a batch of saves with one durable write; returns the IDs of the records replaced
+    Set<String> saveAll(Collection<T> batch) {
+        if (batch.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<String[]> rows = new ArrayList<>(batch.size());
+        List<T> copies = new ArrayList<>(batch.size());
+        for (T record : batch) {
+            rows.add(rowFormatter.apply(record));
+            copies.add(copier.apply(record));
+        }
+        Set<String> replaced = new HashSet<>();
+        lockForWrite();
+        try {
+            for (T record : copies) {
+                String key = idFunction.apply(record);
+                int size = records.size();
+                int id = records.put(key, record);
+                if (records.size() == size) {
+                    replaced.add(key);
+                }
+                for (Index<T> index : indexes) {
+                    index.put(id, record);
+                }
+            }
+            
+            writeBatch(rows.size(), () -> journal.appendUpserts(rows));
+        } finally {
+            unlockForWrite();
+        }
+        return replaced;
+    }
+    
+    // IDs of the records removed, each once
+    Set<String> deleteAll(Collection<String> ids) {
+        lockForWrite();
+        try {
+            Set<String> removed = new LinkedHashSet<>();
+            for (String id : ids) {
+                int surrogate = records.remove(id);
+                if (surrogate < 0) {
+                    continue;
+                }
+                for (Index<T> index : indexes) {
+                    index.remove(surrogate);
+                }
+                removed.add(id);
+            }
+            if (removed.isEmpty()) {
+                return removed;
+            }
+            
+            writeBatch(removed.size(), () -> journal.appendDeletes(removed));
+            return removed;
+        } finally {
+            unlockForWrite();
+        }
+    }
+    
+    // Fold the journal into the CSV file
+    void checkpoint() {
+        if (journal.size() == 0) {
+            return;
+        }
+        lockForWrite();
+        try {
+            if (journal.getEntryCount() == 0) {
+                return;
+            }
+            if (writeAll()) {
+                journal.truncate();
+            }
+            recordFileState();
+        } finally {
+            unlockForWrite();
+        }
+    }
+    
+    // Drop the cached records so the next access re-reads the file
+    void invalidate() {
+        writer.lock();
+        try {
+            records = null;
+            loadedModified = -1;
+            loadedSize = -1;
+            loadedJournalSize = -1;
+            published.set(null);
+        } finally {
+            writer.unlock();
+        }
+    }
+    
+    private boolean isCurrent() {
+        File file = new File(filename);
+        return records != null && file.lastModified() == loadedModified && file.length() == loadedSize
+                && journal.size() == loadedJournalSize;
+    }
+    
+    /**
+     * The published version if it can be read without locking: the files still match it, or
+     * a writer of this process holds the lock, in which case the mismatch is that writer's own
+     * change and it publishes when done. Null if the files changed elsewhere or nothing is loaded.
+     * Changes by other processes therefore show up to RECHECK_NANOS late; writes always re-check.
+     */
+    private Version<T> usableVersion() {
+        Version<T> version = published.get();
+        if (version != null && (version.isCurrent(filename, journal) || writer.isLocked())) {
+            return version;
+        }
+        return null;
+    }
+    
+    // The latest version, loading the files under the write lock when there is no usable one
+    private Version<T> read() {
+        Version<T> version = usableVersion();
+        if (version != null) {
+            return version;
+        }
+        writer.lock();
+        try {
+            refreshIfStale();
+            version = published.get();
+        } finally {
+            writer.unlock();
+        }
+        writePendingSnapshot();
+        return version;
+    }
+    
+    // Loads under the shared file lock; a no-op while the files are unchanged. Needs the write lock
+    private void refreshIfStale() {
+        if (isCurrent()) {
+            return;
+        }
+        lock.lockShared();
+        try {
+            reload();
+        } finally {
+            lock.unlockShared();
+        }
+        publish();
+    }
+    
+    // Freezes the live state for readers; needs the write lock
+    private void publish() {
+        List<Index<T>> frozen = new ArrayList<>(indexes.size());
+        for (Index<T> index : indexes) {
+            frozen.add(index.snapshot());
+        }
+        published.set(new Version<>(records.snapshot(), frozen, loadedModified, loadedSize, loadedJournalSize));
+    }
+    
+    /**
+     * Takes the write lock and the exclusive file lock with the records current; release both
+     * with unlockForWrite. Loading happens under the shared file lock first, so the exclusive
+     * one is normally held only to stat the files and write; the second check catches writes
+     * other processes made while this one waited.
+     */
+    private void lockForWrite() {
+        writer.lock();
+        try {
+            refreshIfStale();
+            lock.lockExclusive();
+        } catch (RuntimeException e) {
+            writer.unlock();
+            throw e;
+        }
+        try {
+            refreshIfStale();
+            if (journal.repairTornTail()) {
+                loadedJournalSize = journal.size();
+            }
+        } catch (RuntimeException e) {
+            unlockForWrite();
+            throw e;
+        }
+    }
+    
+    // Publishes whatever the writer changed, releases both locks, then writes any pending snapshot
+    private void unlockForWrite() {
+        try {
+            publish();
+        } finally {
+            lock.unlockExclusive();
+            writer.unlock();
+        }
+        writePendingSnapshot();
+    }
+    
+    private void reload() {
+        File file = new File(filename);
+        long modified = file.lastModified();
+        long size = file.length();
+        long journalSize = journal.size();
+        
+        RecordTable<T> loaded = tableFactory.get();
+        // Any snapshot still pending describes a CSV that has now been replaced
+        pendingSnapshot = null;
+        boolean fromSnapshot = snapshotCodec != null
+            && SnapshotFile.read(snapshotName, header[0], file, snapshotCodec, idFunction, loaded);
+        
+        if (!fromSnapshot) {
+            // Large files are split across cores; rows come back in file order, a few
+            // ranges at a time
+            CSVChunkParser.parse(filename, header[0], rowParser,
+                record -> loaded.put(idFunction.apply(record), record));
+            
+            // Next start can skip parsing while the CSV stays as it is
+            if (snapshotCodec != null && file.exists()) {
+                pendingSnapshot = new PendingSnapshot<>(loaded.values(), modified, size);
+            }
+        }
+        
+        for (Index<T> index : indexes) {
+            index.clear();
+            for (int id = 0; id < loaded.limit(); id++) {
+                T record = loaded.get(id);
+                if (record != null) {
+                    index.put(id, record);
+                }
+            }
+        }
+        
+        // Apply changes made since the last checkpoint
+        journal.replay(new Journal.EntryHandler() {
+            @Override
+            public void upsert(CSVRecord row) {
+                T record = rowParser.apply(row);
+                if (record != null) {
+                    int id = loaded.put(idFunction.apply(record), record);
+                    for (Index<T> index : indexes) {
+                        index.put(id, record);
+                    }
+                }
+            }
+            
+            @Override
+            public void delete(String id) {
+                int surrogate = loaded.remove(id);
+                if (surrogate < 0) {
+                    return;
+                }
+                for (Index<T> index : indexes) {
+                    index.remove(surrogate);
+                }
+            }
+        });
+        
+        records = loaded;
+        loadedModified = modified;
+        loadedSize = size;
+        loadedJournalSize = journalSize;
+    }
+    
+    // A batch that would take the journal to a checkpoint rewrites the CSV directly instead
+    private void writeBatch(int entries, Runnable journalWrite) {
+        if (journal.getEntryCount() + entries >= CHECKPOINT_INTERVAL && writeAll()) {
+            journal.truncate();
+            recordFileState();
+            return;
+        }
+        journalWrite.run();
+        afterJournalWrite();
+    }
+    
+    private void afterJournalWrite() {
+        if (journal.getEntryCount() >= CHECKPOINT_INTERVAL && writeAll()) {
+            journal.truncate();
+        }
+        // Our own writes must not trigger a reload on the next access
+        recordFileState();
+    }
+    
+    private void recordFileState() {
+        File file = new File(filename);
+        loadedModified = file.lastModified();
+        loadedSize = file.length();
+        loadedJournalSize = journal.size();
+    }
+    
+    private boolean writeAll() {
+        List<String[]> rows = new ArrayList<>(records.size() + 1);
+        rows.add(header);
+        List<T> values = records.values();
+        for (T record : values) {
+            rows.add(rowFormatter.apply(record));
+        }
+        
+        if (!CSVUtils.replaceCSV(filename, rows)) {
+            return false;
+        }
+        // Surrogates are kept, so the indexes stay valid
+        records = records.compact();
+        if (snapshotCodec != null) {
+            File file = new File(filename);
+            pendingSnapshot = new PendingSnapshot<>(values, file.lastModified(), file.length());
+        }
+        return true;
+    }
+    
+    // Snapshot of the CSV last written or parsed, unless that CSV has been replaced since
+    private void writePendingSnapshot() {
+        PendingSnapshot<T> pending;
+        writer.lock();
+        try {
+            pending = pendingSnapshot;
+            pendingSnapshot = null;
+        } finally {
+            writer.unlock();
+        }
+        if (pending == null) {
+            return;
+        }
+        synchronized (snapshotWrite) {
+            File file = new File(filename);
+            if (file.lastModified() == pending.modified && file.length() == pending.size) {
+                SnapshotFile.write(snapshotName, header[0], pending.modified, pending.size, snapshotCodec,
+                    pending.values);
+            }
+        }
+    }
+    
+    // Copies of the records behind the surrogates
+    private List<T> collect(Version<T> version, IntList ids) {
+        List<T> matches = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            matches.add(copier.apply(version.records.get(ids.get(i))));
+        }
+        return matches;
+    }
+    
+    private T copy(T record) {
+        return record != null ? copier.apply(record) : null;
+    }
+    
+    private List<T> copies(List<T> records) {
+        records.replaceAll(copier);
+        return records;
+    }
+    
+    // Records of one CSV with the modification time and size that CSV had
+    private static final class PendingSnapshot<T> {
+        final List<T> values;
+        final long modified;
+        final long size;
+        
+        PendingSnapshot(List<T> values, long modified, long size) {
+            this.values = values;
+            this.modified = modified;
+            this.size = size;
+        }
+    }
+    
+    // Records and indexes frozen together, with the file state they were read from
+    private static final class Version<T> {
+        final RecordTable<T> records;
+        // Frozen copies, in the order of the store's indexes
+        final List<Index<T>> indexes;
+        final long modified;
+        final long size;
+        final long journalSize;
+        // System.nanoTime() when the files last matched this version
+        private volatile long checkedAt;
+        
+        Version(RecordTable<T> records, List<Index<T>> indexes, long modified, long size, long journalSize) {
+            this.records = records;
+            this.indexes = indexes;
+            this.modified = modified;
+            this.size = size;
+            this.journalSize = journalSize;
+            this.checkedAt = System.nanoTime();
+        }
+        
+        // Stats the files at most once per RECHECK_NANOS while they keep matching
+        boolean isCurrent(String filename, Journal journal) {
+            long now = System.nanoTime();
+            if (now - checkedAt < RECHECK_NANOS) {
+                return true;
+            }
+            File file = new File(filename);
+            boolean current = file.lastModified() == modified && file.length() == size
+                && journal.size() == journalSize;
+            if (current) {
+                checkedAt = now;
+            }
+            return current;
+        }
+        
+        // This version's copy of one of the store's indexes
+        @SuppressWarnings("unchecked")
+        <I extends Index<T>> I index(List<Index<T>> live, I index) {
+            return (I) indexes.get(live.indexOf(index));
+        }
+    }
+    
+    // Indexes see records by the surrogate of their ID
+    interface Index<T> {
+        void put(int id, T record);
+        void remove(int id);
+        void clear();
+        // Read-only copy sharing this index's storage; later writes to this index do not show in it
+        Index<T> snapshot();
+    }
+    
+    static int[] ensureCapacity(int[] array, int index, int fill) {
+        if (index < array.length) {
+            return array;
+        }
+        int[] grown = Arrays.copyOf(array, Math.max(array.length * 2, index + 1));
+        Arrays.fill(grown, array.length, grown.length, fill);
+        return grown;
+    }
+    
+    /**
+     * Hash index from a secondary key column to record surrogate.
+     * Keys are interned to their own surrogates, so the mapping both ways is a plain int array.
+     * The key is remembered per record so a record whose key changed in place can still be re-indexed.
+     */
+    static final class UniqueIndex<T> implements Index<T> {
+        private final Function<T, String> keyFunction;
+        private final IdTable keys;
+        private ChunkedIntArray idsByKey;
+        private ChunkedIntArray keysById;
+        
+        private UniqueIndex(Function<T, String> keyFunction) {
+            this(keyFunction, new IdTable(), new ChunkedIntArray(-1), new ChunkedIntArray(-1));
+        }
+        
+        private UniqueIndex(Function<T, String> keyFunction, IdTable keys, ChunkedIntArray idsByKey,
+                            ChunkedIntArray keysById) {
+            this.keyFunction = keyFunction;
+            this.keys = keys;
+            this.idsByKey = idsByKey;
+            this.keysById = keysById;
+        }
+        
+        int find(String key) {
+            int keyId = keys.find(key);
+            return keyId >= 0 ? idsByKey.get(keyId) : -1;
+        }
+        
+        @Override
+        public void put(int id, T record) {
+            remove(id);
+            String key = keyFunction.apply(record);
+            if (key != null && !key.isEmpty()) {
+                int keyId = keys.intern(key);
+                idsByKey.set(keyId, id);
+                keysById.set(id, keyId);
+            }
+        }
+        
+        @Override
+        public void remove(int id) {
+            int oldKey = keysById.get(id);
+            if (oldKey < 0) {
+                return;
+            }
+            keysById.set(id, -1);
+            if (idsByKey.get(oldKey) == id) {
+                idsByKey.set(oldKey, -1);
+            }
+        }
+        
+        @Override
+        public void clear() {
+            keys.clear();
+            idsByKey = new ChunkedIntArray(-1);
+            keysById = new ChunkedIntArray(-1);
+        }
+        
+        @Override
+        public UniqueIndex<T> snapshot() {
+            return new UniqueIndex<>(keyFunction, keys.snapshot(), idsByKey.snapshot(), keysById.snapshot());
+        }
+    }
+    
+    /**
+     * Ordered index on a numeric key, so range queries only touch the matching records.
+     * Each key is held as the point interval [key, key] in an IntervalIndex, whose persistent
+     * treap already gives ordered, snapshot-friendly storage; equal keys are in file order.
+     */
+    static final class SortedIndex<T> implements Index<T> {
+        private final IntervalIndex<T> points;
+        
+        private SortedIndex(Function<T, Long> keyFunction) {
+            this(new IntervalIndex<>(keyFunction, keyFunction));
+        }
+        
+        private SortedIndex(IntervalIndex<T> points) {
+            this.points = points;
+        }
+        
+        // Surrogates with from <= key <= to, in key order
+        IntList find(long from, long to) {
+            return points.findOverlapping(from, to);
+        }
+        
+        @Override
+        public void put(int id, T record) {
+            points.put(id, record);
+        }
+        
+        @Override
+        public void remove(int id) {
+            points.remove(id);
+        }
+        
+        @Override
+        public void clear() {
+            points.clear();
+        }
+        
+        @Override
+        public SortedIndex<T> snapshot() {
+            return new SortedIndex<>(points.snapshot());
+        }
+    }
+    
+    /**
+     * Multimap from a secondary key column to the surrogates of every record with that key,
+     * kept in insertion order. Keys are interned to their own dense surrogates, so each key's
+     * members are found by array index and held in an int list.
+     * A list frozen in a snapshot is copied before its next change; lists copied since the
+     * last snapshot are changed in place, so a reload builds each one only once.
+     */
+    static final class MultiIndex<T> implements Index<T> {
+        private final Function<T, String> keyFunction;
+        private final IdTable keys;
+        private ChunkedArray<IntList> idsByKey;
+        private ChunkedIntArray keysById;
+        // Snapshot count when each key's list was last copied
+        private int[] editByKey = new int[0];
+        private int edit;
+        
+        private MultiIndex(Function<T, String> keyFunction) {
+            this(keyFunction, new IdTable(), new ChunkedArray<>(), new ChunkedIntArray(-1));
+        }
+        
+        private MultiIndex(Function<T, String> keyFunction, IdTable keys, ChunkedArray<IntList> idsByKey,
+                           ChunkedIntArray keysById) {
+            this.keyFunction = keyFunction;
+            this.keys = keys;
+            this.idsByKey = idsByKey;
+            this.keysById = keysById;
+        }
+        
+        // Members of the key, or null if it has none
+        IntList find(String key) {
+            int keyId = keys.find(key);
+            IntList ids = keyId >= 0 ? idsByKey.get(keyId) : null;
+            return ids != null && !ids.isEmpty() ? ids : null;
+        }
+        
+        Map<String, Integer> counts() {
+            Map<String, Integer> counts = new HashMap<>();
+            for (int keyId = 0; keyId < keys.size(); keyId++) {
+                IntList ids = idsByKey.get(keyId);
+                if (ids != null && !ids.isEmpty()) {
+                    counts.put(keys.get(keyId), ids.size());
+                }
+            }
+            return counts;
+        }
+        
+        @Override
+        public void put(int id, T record) {
+            String key = keyFunction.apply(record);
+            int keyId = keysById.get(id);
+            if (key != null && keyId >= 0 && key.equals(keys.get(keyId))) {
+                return; // Unchanged key keeps its position
+            }
+            remove(id);
+            if (key != null && !key.isEmpty()) {
+                keyId = keys.intern(key);
+                writableIds(keyId).add(id);
+                keysById.set(id, keyId);
+            }
+        }
+        
+        @Override
+        public void remove(int id) {
+            int keyId = keysById.get(id);
+            if (keyId < 0) {
+                return;
+            }
+            writableIds(keyId).remove(id);
+            keysById.set(id, -1);
+        }
+        
+        @Override
+        public void clear() {
+            keys.clear();
+            idsByKey = new ChunkedArray<>();
+            keysById = new ChunkedIntArray(-1);
+            editByKey = new int[0];
+        }
+        
+        @Override
+        public MultiIndex<T> snapshot() {
+            edit++;
+            return new MultiIndex<>(keyFunction, keys.snapshot(), idsByKey.snapshot(), keysById.snapshot());
+        }
+        
+        // The key's list, copied first unless this edit already did
+        private IntList writableIds(int keyId) {
+            IntList ids = idsByKey.get(keyId);
+            editByKey = ensureCapacity(editByKey, keyId, -1);
+            if (ids == null || editByKey[keyId] != edit) {
+                ids = ids != null ? new IntList(ids) : new IntList();
+                idsByKey.set(keyId, ids);
+                editByKey[keyId] = edit;
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package mentcare.dao.csv;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Records held as ordinary objects in a chunked array indexed by surrogate
+final class HeapRecordTable<T> implements RecordTable<T> {
+    private final IdTable ids;
+    private ChunkedArray<T> records;
+    private int count;
+    
+    HeapRecordTable() {
+        this(new IdTable(), new ChunkedArray<>(), 0);
+    }
+    
+    private HeapRecordTable(IdTable ids, ChunkedArray<T> records, int count) {
+        this.ids = ids;
+        this.records = records;
+        this.count = count;
+    }
+    
+    @Override
+    public int size() {
+        return count;
+    }
+    
+    @Override
+    public int limit() {
+        return ids.size();
+    }
+    
+    @Override
+    public int put(String id, T record) {
+        int surrogate = ids.intern(id);
+        if (records.get(surrogate) == null) {
+            count++;
+        }
+        records.set(surrogate, record);
+        return surrogate;
+    }
+    
+    @Override
+    public int remove(String id) {
+        int surrogate = ids.find(id);
+        if (surrogate < 0 || records.get(surrogate) == null) {
+            return -1;
+        }
+        records.set(surrogate, null);
+        count--;
+        return surrogate;
+    }
+    
+    @Override
+    public T get(String id) {
+        int surrogate = ids.find(id);
+        return surrogate >= 0 ? get(surrogate) : null;
+    }
+    
+    @Override
+    public T get(int surrogate) {
+        return records.get(surrogate);
+    }
+    
+    @Override
+    public List<T> values() {
+        List<T> values = new ArrayList<>(count);
+        for (int surrogate = 0; surrogate < limit(); surrogate++) {
+            T record = get(surrogate);
+            if (record != null) {
+                values.add(record);
+            }
+        }
+        return values;
+    }
+    
+    @Override
+    public void clear() {
+        ids.clear();
+        records = new ChunkedArray<>();
+        count = 0;
+    }
+    
+    @Override
+    public RecordTable<T> snapshot() {
+        return new HeapRecordTable<>(ids.snapshot(), records.snapshot(), count);
+    }
+}
@@ -0,0 +1,108 @@
+package mentcare.dao.csv;
+
+import java.util.Arrays;
+
+/**
+ * Dense int surrogates for string keys: the first key interned gets 0, the next 1 and so on,
+ * and a surrogate is never reused while the table lives, so callers can index plain arrays
+ * with it. Open addressing with linear probing over an int array, so a lookup chases no
+ * entry objects and nothing is boxed.
+ * The arrays are only ever appended to or replaced, so a snapshot can share them: it ignores
+ * surrogates interned after it was taken, which the writer may be adding while it is read.
+ */
+final class IdTable {
+    private static final int EMPTY = -1;
+    
+    // Surrogate stored in each hash slot; kept at most half full
+    private int[] slots = emptySlots(32);
+    // Key of each surrogate
+    private String[] keys = new String[16];
+    private int size;
+    
+    IdTable() {
+    }
+    
+    private IdTable(int[] slots, String[] keys, int size) {
+        this.slots = slots;
+        this.keys = keys;
+        this.size = size;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    String get(int surrogate) {
+        return keys[surrogate];
+    }
+    
+    // The key's surrogate, or -1 if it was never interned
+    int find(String key) {
+        int mask = slots.length - 1;
+        for (int slot = spread(key.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int surrogate = slots[slot];
+            if (surrogate == EMPTY) {
+                return -1;
+            }
+            if (surrogate < size && keys[surrogate].equals(key)) {
+                return surrogate;
+            }
+        }
+    }
+    
+    // The key's surrogate, assigning the next one if the key is new
+    int intern(String key) {
+        int mask = slots.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        for (; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slots[slot]].equals(key)) {
+                return slots[slot];
+            }
+        }
+        
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        int surrogate = size++;
+        keys[surrogate] = key;
+        slots[slot] = surrogate;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return surrogate;
+    }
+    
+    // Fresh arrays, as snapshots may still be reading the old ones
+    void clear() {
+        slots = emptySlots(32);
+        keys = new String[16];
+        size = 0;
+    }
+    
+    // Frozen view of the surrogates interned so far; it must not be interned into
+    IdTable snapshot() {
+        return new IdTable(slots, keys, size);
+    }
+    
+    private void rehash() {
+        slots = emptySlots(slots.length * 2);
+        int mask = slots.length - 1;
+        for (int surrogate = 0; surrogate < size; surrogate++) {
+            int slot = spread(keys[surrogate].hashCode()) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = surrogate;
+        }
+    }
+    
+    private static int[] emptySlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+    
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
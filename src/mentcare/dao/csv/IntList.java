@@ -0,0 +1,49 @@
+package mentcare.dao.csv;
+
+import java.util.Arrays;
+
+// Growable list of primitive ints in insertion order
+final class IntList {
+    private int[] values;
+    private int size;
+    
+    IntList() {
+        values = new int[4];
+    }
+    
+    IntList(IntList source) {
+        values = Arrays.copyOf(source.values, Math.max(source.size, 4));
+        size = source.size;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    int get(int index) {
+        return values[index];
+    }
+    
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+    
+    // Removes the first occurrence, keeping the order of the rest
+    boolean remove(int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                System.arraycopy(values, i + 1, values, i, size - i - 1);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+}
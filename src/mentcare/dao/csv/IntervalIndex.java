@@ -0,0 +1,211 @@
+package mentcare.dao.csv;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Interval tree over a [start, end] pair of numeric keys, for "valid at" and "valid during" queries.
+ * Intervals live in a treap ordered by start, each node carrying the largest end in its subtree,
+ * so a query skips any subtree that ends before the range and stops once starts pass it.
+ * A null end is open-ended; records without a start are not indexed.
+ * The treap is persistent: nodes created since the last snapshot are changed in place, and
+ * any older node is copied first, so an update copies only its path from the root and a
+ * snapshot is just the root.
+ */
+final class IntervalIndex<T> implements EntityStore.Index<T> {
+    private final Function<T, Long> startFunction;
+    private final Function<T, Long> endFunction;
+    // A node of each record surrogate, null if not indexed; only its key fields are read
+    private ChunkedArray<Node> nodesById;
+    private Node root;
+    // Stamped on nodes created since the last snapshot
+    private int edit;
+    
+    private static final class Node {
+        final int id;
+        final long start;
+        final long end;
+        final int priority;
+        final int edit;
+        long maxEnd;
+        Node left, right;
+        
+        Node(int id, long start, long end, int edit) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.priority = ThreadLocalRandom.current().nextInt();
+            this.edit = edit;
+            this.maxEnd = end;
+        }
+        
+        Node(Node source, int edit) {
+            this.id = source.id;
+            this.start = source.start;
+            this.end = source.end;
+            this.priority = source.priority;
+            this.edit = edit;
+            this.maxEnd = source.maxEnd;
+            this.left = source.left;
+            this.right = source.right;
+        }
+        
+        // Order by start, then surrogate (file order) so equal starts stay distinct
+        int compareTo(long otherStart, int otherId) {
+            int byStart = Long.compare(start, otherStart);
+            return byStart != 0 ? byStart : Integer.compare(id, otherId);
+        }
+    }
+    
+    IntervalIndex(Function<T, Long> startFunction, Function<T, Long> endFunction) {
+        this(startFunction, endFunction, new ChunkedArray<>(), null, 0);
+    }
+    
+    private IntervalIndex(Function<T, Long> startFunction, Function<T, Long> endFunction,
+                          ChunkedArray<Node> nodesById, Node root, int edit) {
+        this.startFunction = startFunction;
+        this.endFunction = endFunction;
+        this.nodesById = nodesById;
+        this.root = root;
+        this.edit = edit;
+    }
+    
+    @Override
+    public void put(int id, T record) {
+        Long start = startFunction.apply(record);
+        Long end = endFunction.apply(record);
+        long endKey = end != null ? end : Long.MAX_VALUE;
+        
+        Node existing = nodesById.get(id);
+        if (existing != null && start != null && existing.start == start && existing.end == endKey) {
+            return;
+        }
+        remove(id);
+        if (start == null) {
+            return;
+        }
+        
+        Node node = new Node(id, start, endKey, edit);
+        Node[] parts = split(root, start, id);
+        root = merge(merge(parts[0], node), parts[1]);
+        nodesById.set(id, node);
+    }
+    
+    @Override
+    public void remove(int id) {
+        Node node = nodesById.get(id);
+        if (node == null) {
+            return;
+        }
+        root = delete(root, node.start, id);
+        nodesById.set(id, null);
+    }
+    
+    @Override
+    public void clear() {
+        nodesById = new ChunkedArray<>();
+        root = null;
+    }
+    
+    @Override
+    public IntervalIndex<T> snapshot() {
+        // Every node reachable now belongs to the snapshot from here on
+        edit++;
+        return new IntervalIndex<>(startFunction, endFunction, nodesById.snapshot(), root, -1);
+    }
+    
+    // Surrogates of intervals with start <= to and end >= from, in start order
+    IntList findOverlapping(long from, long to) {
+        IntList ids = new IntList();
+        collect(root, from, to, ids);
+        return ids;
+    }
+    
+    private static void collect(Node node, long from, long to, IntList ids) {
+        while (node != null && node.maxEnd >= from) {
+            collect(node.left, from, to, ids);
+            if (node.start > to) {
+                return; // Everything to the right starts later still
+            }
+            if (node.end >= from) {
+                ids.add(node.id);
+            }
+            node = node.right;
+        }
+    }
+    
+    // The node itself if this edit created it, otherwise a copy that may be changed
+    private Node writable(Node node) {
+        return node.edit == edit ? node : new Node(node, edit);
+    }
+    
+    // Splits into nodes ordered before (start, id) and the rest
+    private Node[] split(Node node, long start, int id) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (node.compareTo(start, id) < 0) {
+            Node[] parts = split(node.right, start, id);
+            node = writable(node);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+            return parts;
+        }
+        Node[] parts = split(node.left, start, id);
+        node = writable(node);
+        node.left = parts[1];
+        update(node);
+        parts[1] = node;
+        return parts;
+    }
+    
+    // Every node in a is ordered before every node in b
+    private Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a = writable(a);
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b = writable(b);
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+    
+    private Node delete(Node node, long start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int order = node.compareTo(start, id);
+        if (order == 0) {
+            return merge(node.left, node.right);
+        }
+        node = writable(node);
+        if (order < 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            node.left = delete(node.left, start, id);
+        }
+        update(node);
+        return node;
+    }
+    
+    private static void update(Node node) {
+        long maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd > maxEnd) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+}
@@ -0,0 +1,185 @@
+package mentcare.dao.csv;
+
+import mentcare.utils.CSVRecord;
+import mentcare.utils.CSVRowReader;
+import mentcare.utils.CSVUtils;
+import mentcare.utils.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Append-only log of upserts and deletes for one entity file.
+ * Each entry is one CSV record: "U,<csv row>" for an upsert or "D,<id>" for a delete.
+ * A trailing record without its newline is a torn write from a crash and is ignored on replay.
+ */
+class Journal {
+    static final String UPSERT = "U";
+    static final String DELETE = "D";
+    
+    interface EntryHandler {
+        void upsert(CSVRecord row);
+        void delete(String id);
+    }
+    
+    private final Path path;
+    private int entryCount;
+    // Set when replay found a torn trailing entry that repairTornTail has not yet dropped
+    private boolean torn;
+    
+    Journal(String filename) {
+        this.path = Paths.get(filename);
+    }
+    
+    int getEntryCount() { return entryCount; }
+    
+    long size() {
+        return new File(path.toString()).length();
+    }
+    
+    void appendUpsert(String[] row) {
+        append(Collections.singletonList(upsertEntry(row)));
+    }
+    
+    // The whole batch goes out in a single write and sync
+    void appendUpserts(List<String[]> rows) {
+        List<String> entries = new ArrayList<>(rows.size());
+        for (String[] row : rows) {
+            entries.add(upsertEntry(row));
+        }
+        append(entries);
+    }
+    
+    void appendDelete(String id) {
+        append(Collections.singletonList(deleteEntry(id)));
+    }
+    
+    void appendDeletes(Collection<String> ids) {
+        List<String> entries = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            entries.add(deleteEntry(id));
+        }
+        append(entries);
+    }
+    
+    private static String upsertEntry(String[] row) {
+        return UPSERT + "," + CSVUtils.formatRow(row);
+    }
+    
+    private static String deleteEntry(String id) {
+        return DELETE + "," + CSVUtils.formatRow(new String[]{id});
+    }
+    
+    private void append(List<String> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (String entry : entries) {
+            lines.append(entry).append('\n');
+        }
+        byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            // The entry is the only copy of this change until the next checkpoint
+            channel.force(false);
+            entryCount += entries.size();
+        } catch (IOException e) {
+            Log.error("Error appending to journal " + path + ": " + e.getMessage());
+        }
+    }
+    
+    // Apply every complete entry in file order; returns the number of entries replayed
+    int replay(EntryHandler handler) {
+        entryCount = 0;
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        
+        try (CSVRowReader reader = new CSVRowReader(path.toString())) {
+            CSVRecord entry;
+            while ((entry = reader.nextRecord()) != null) {
+                if (!reader.isLastRecordTerminated()) {
+                    Log.warn("Ignoring incomplete trailing entry in journal " + path);
+                    torn = true;
+                    break;
+                }
+                if (entry.size() < 2) {
+                    continue;
+                }
+                
+                if (entry.fieldEquals(0, UPSERT)) {
+                    String[] fields = entry.toArray();
+                    handler.upsert(CSVRecord.of(Arrays.copyOfRange(fields, 1, fields.length)));
+                } else if (entry.fieldEquals(0, DELETE)) {
+                    handler.delete(entry.get(1));
+                } else {
+                    continue;
+                }
+                entryCount++;
+            }
+        } catch (IOException e) {
+            Log.error("Error reading journal " + path + ": " + e.getMessage());
+        }
+        return entryCount;
+    }
+    
+    /**
+     * Rewrites the journal without the torn entry replay found, otherwise an open quote in it
+     * would swallow the next append. Must be called holding the file's exclusive lock, before
+     * appending; returns true if the file was rewritten.
+     */
+    boolean repairTornTail() {
+        if (!torn) {
+            return false;
+        }
+        List<String[]> complete = new ArrayList<>();
+        boolean tail = false;
+        try (CSVRowReader reader = new CSVRowReader(path.toString())) {
+            CSVRecord entry;
+            while ((entry = reader.nextRecord()) != null) {
+                if (!reader.isLastRecordTerminated()) {
+                    tail = true;
+                    break;
+                }
+                complete.add(entry.toArray());
+            }
+        } catch (IOException e) {
+            Log.error("Error reading journal " + path + ": " + e.getMessage());
+            return false;
+        }
+        // Another process may have repaired it already
+        if (tail && !CSVUtils.replaceCSV(path.toString(), complete)) {
+            return false;
+        }
+        torn = false;
+        return tail;
+    }
+    
+    // Called once the entries have been folded into the CSV file
+    void truncate() {
+        try {
+            Files.deleteIfExists(path);
+            entryCount = 0;
+            torn = false;
+        } catch (IOException e) {
+            Log.error("Error truncating journal " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package mentcare.dao.csv;
+
+import mentcare.models.Patient;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Patient table kept outside the Java heap, for populations in the millions.
+ * Each patient is a fixed-width row in a direct buffer segment: references into a StringArena
+ * for the text fields, epoch days for the dates, and the risk level and sectioned flag as bytes.
+ * The ID lookup is an int array of surrogates probed by hash, comparing encoded bytes in the
+ * arena, so the table holds no per-patient objects at all, only a few primitive arrays.
+ * Records are handed out as flyweight views that read their row on every call. A view copies
+ * itself onto the heap the first time one of its setters is used, so an edit stays private
+ * until the patient is saved, as with ordinary records.
+ * Rows are never changed once written: saving a patient appends a new row and points the
+ * surrogate at it, so views handed to other threads stay consistent while writers carry on.
+ * The ID lookup arrays are append-only and the row of each surrogate is a chunked array, so
+ * a snapshot shares all of them and costs little more than copying the chunk references.
+ * Replaced rows and strings are reclaimed by compact(), which the store calls at each
+ * checkpoint: once replaced rows outnumber live ones, the live rows are copied into a fresh
+ * table under the same surrogates, and the old one is freed with the last view of it. Direct memory is
+ * limited by -XX:MaxDirectMemorySize, which defaults to the maximum heap size.
+ */
+final class OffHeapPatientTable implements RecordTable<Patient> {
+    private static final int ROW_BYTES = 64;
+    private static final int SEGMENT_ROWS = 1 << 16;
+    private static final int EMPTY = -1;
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+    // Replaced rows tolerated however few rows are live
+    private static final int COMPACT_MIN_ROWS = 1024;
+    
+    // Field offsets within a row: arena references first, then epoch days, then bytes
+    private static final int ID = 0;
+    private static final int NHS_NUMBER = 8;
+    private static final int NAME = 16;
+    private static final int ADDRESS = 24;
+    private static final int CONTACT = 32;
+    private static final int PRACTICE = 40;
+    private static final int DATE_OF_BIRTH = 48;
+    private static final int SECTIONED_DATE = 52;
+    private static final int REVIEW_DATE = 56;
+    private static final int RISK = 60;
+    private static final int FLAGS = 61;
+    
+    private static final byte SECTIONED = 1;
+    
+    private static final Patient.RiskLevel[] RISK_LEVELS = Patient.RiskLevel.values();
+    
+    // Replaced whole when it grows, so views on other threads always see a complete array
+    private volatile ByteBuffer[] segments;
+    private StringArena arena;
+    // Surrogate in each hash slot; kept at most half full
+    private int[] slots;
+    // Per surrogate: ID hash (so growing the slots never reads the arena), arena reference of
+    // the ID, and current row, EMPTY once deleted
+    private int[] hashes;
+    private long[] ids;
+    private ChunkedIntArray rows;
+    private int limit;
+    private int rowCount;
+    private int count;
+    
+    OffHeapPatientTable() {
+        segments = new ByteBuffer[0];
+        arena = new StringArena();
+        slots = emptySlots(1024);
+        hashes = new int[1024];
+        ids = new long[1024];
+        rows = new ChunkedIntArray(EMPTY);
+    }
+    
+    // Frozen copy sharing the source's storage
+    private OffHeapPatientTable(OffHeapPatientTable source) {
+        segments = source.segments;
+        arena = source.arena;
+        slots = source.slots;
+        hashes = source.hashes;
+        ids = source.ids;
+        rows = source.rows.snapshot();
+        limit = source.limit;
+        rowCount = source.rowCount;
+        count = source.count;
+    }
+    
+    @Override
+    public int size() {
+        return count;
+    }
+    
+    @Override
+    public int limit() {
+        return limit;
+    }
+    
+    @Override
+    public int put(String id, Patient patient) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int hash = id.hashCode();
+        int slot = findSlot(key, hash);
+        int surrogate = slots[slot];
+        if (surrogate == EMPTY) {
+            surrogate = addSurrogate(slot, hash, arena.add(id));
+        }
+        if (rows.get(surrogate) == EMPTY) {
+            count++;
+        }
+        rows.set(surrogate, writeRow(ids[surrogate], patient));
+        return surrogate;
+    }
+    
+    @Override
+    public int remove(String id) {
+        int surrogate = find(id);
+        if (surrogate < 0) {
+            return -1;
+        }
+        rows.set(surrogate, EMPTY);
+        count--;
+        return surrogate;
+    }
+    
+    @Override
+    public Patient get(String id) {
+        int surrogate = find(id);
+        return surrogate >= 0 ? new View(this, rows.get(surrogate)) : null;
+    }
+    
+    @Override
+    public Patient get(int surrogate) {
+        int row = surrogate < limit ? rows.get(surrogate) : EMPTY;
+        return row != EMPTY ? new View(this, row) : null;
+    }
+    
+    @Override
+    public List<Patient> values() {
+        List<Patient> values = new ArrayList<>(count);
+        for (int surrogate = 0; surrogate < limit; surrogate++) {
+            int row = rows.get(surrogate);
+            if (row != EMPTY) {
+                values.add(new View(this, row));
+            }
+        }
+        return values;
+    }
+    
+    @Override
+    public void clear() {
+        // Snapshots keep what they share, so everything is replaced rather than reset in place
+        segments = new ByteBuffer[0];
+        arena = new StringArena();
+        slots = emptySlots(1024);
+        hashes = new int[1024];
+        ids = new long[1024];
+        rows = new ChunkedIntArray(EMPTY);
+        limit = 0;
+        rowCount = 0;
+        count = 0;
+    }
+    
+    @Override
+    public RecordTable<Patient> compact() {
+        // Worth a copy once replaced rows outnumber live ones
+        if (rowCount - count <= Math.max(count, COMPACT_MIN_ROWS)) {
+            return this;
+        }
+        OffHeapPatientTable compacted = new OffHeapPatientTable();
+        compacted.slots = slots.clone();
+        compacted.hashes = hashes.clone();
+        compacted.ids = new long[ids.length];
+        compacted.limit = limit;
+        compacted.count = count;
+        for (int surrogate = 0; surrogate < limit; surrogate++) {
+            // Deleted IDs keep their surrogate, so their text is copied too
+            long idRef = compacted.arena.add(arena.get(ids[surrogate]));
+            compacted.ids[surrogate] = idRef;
+            int row = rows.get(surrogate);
+            if (row != EMPTY) {
+                compacted.rows.set(surrogate, compacted.writeRow(idRef, new View(this, row)));
+            }
+        }
+        return compacted;
+    }
+    
+    @Override
+    public RecordTable<Patient> snapshot() {
+        return new OffHeapPatientTable(this);
+    }
+    
+    // Live surrogate of the ID, or -1
+    private int find(String id) {
+        int surrogate = slots[findSlot(id.getBytes(StandardCharsets.UTF_8), id.hashCode())];
+        return surrogate != EMPTY && surrogate < limit && rows.get(surrogate) != EMPTY ? surrogate : -1;
+    }
+    
+    // Slot holding the ID's surrogate, or the empty slot where it belongs. A snapshot shares
+    // the slots with the writer, so it skips surrogates added after it was taken
+    private int findSlot(byte[] key, int hash) {
+        int mask = slots.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int surrogate = slots[slot];
+            if (surrogate == EMPTY
+                    || surrogate < limit && hashes[surrogate] == hash && arena.matches(ids[surrogate], key)) {
+                return slot;
+            }
+        }
+    }
+    
+    private int addSurrogate(int slot, int hash, long idRef) {
+        int surrogate = limit++;
+        if (surrogate == hashes.length) {
+            hashes = Arrays.copyOf(hashes, surrogate * 2);
+            ids = Arrays.copyOf(ids, surrogate * 2);
+        }
+        hashes[surrogate] = hash;
+        ids[surrogate] = idRef;
+        slots[slot] = surrogate;
+        if (limit * 2 > slots.length) {
+            rehash();
+        }
+        return surrogate;
+    }
+    
+    private void rehash() {
+        slots = emptySlots(slots.length * 2);
+        int mask = slots.length - 1;
+        for (int surrogate = 0; surrogate < limit; surrogate++) {
+            int slot = spread(hashes[surrogate]) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = surrogate;
+        }
+    }
+    
+    // Appends a row holding the patient's fields
+    private int writeRow(long idRef, Patient patient) {
+        int row = rowCount++;
+        ByteBuffer[] current = segments;
+        if (row / SEGMENT_ROWS == current.length) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = ByteBuffer.allocateDirect(SEGMENT_ROWS * ROW_BYTES);
+            segments = current;
+        }
+        
+        ByteBuffer segment = current[row / SEGMENT_ROWS];
+        int offset = offset(row);
+        Patient.RiskLevel risk = patient.getRiskAssessment();
+        segment.putLong(offset + ID, idRef);
+        segment.putLong(offset + NHS_NUMBER, arena.add(patient.getNationalHealthNumber()));
+        segment.putLong(offset + NAME, arena.add(patient.getName()));
+        segment.putLong(offset + ADDRESS, arena.add(patient.getAddress()));
+        segment.putLong(offset + CONTACT, arena.add(patient.getContactDetails()));
+        segment.putLong(offset + PRACTICE, arena.add(patient.getRegisteredPractice()));
+        segment.putInt(offset + DATE_OF_BIRTH, epochDay(patient.getDateOfBirth()));
+        segment.putInt(offset + SECTIONED_DATE, epochDay(patient.getSectionedDate()));
+        segment.putInt(offset + REVIEW_DATE, epochDay(patient.getReviewDate()));
+        segment.put(offset + RISK, (byte) (risk != null ? risk.ordinal() : 0));
+        segment.put(offset + FLAGS, patient.isSectioned() ? SECTIONED : 0);
+        return row;
+    }
+    
+    private ByteBuffer segment(int row) {
+        return segments[row / SEGMENT_ROWS];
+    }
+    
+    private static int offset(int row) {
+        return (row % SEGMENT_ROWS) * ROW_BYTES;
+    }
+    
+    private String string(int row, int field) {
+        return arena.get(segment(row).getLong(offset(row) + field));
+    }
+    
+    private LocalDate date(int row, int field) {
+        int epochDay = segment(row).getInt(offset(row) + field);
+        return epochDay != NULL_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+    
+    private static int epochDay(LocalDate date) {
+        return date != null ? (int) date.toEpochDay() : NULL_DATE;
+    }
+    
+    private static int[] emptySlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+    
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+    
+    /**
+     * Flyweight patient that reads its (unchanging) row on every call.
+     * The first setter call copies the row onto the heap; from then on the view reads and
+     * writes the copy.
+     */
+    private static final class View extends Patient {
+        private final OffHeapPatientTable table;
+        private final int row;
+        private Patient copy;
+        
+        View(OffHeapPatientTable table, int row) {
+            super(null, null, null, null, null, null);
+            this.table = table;
+            this.row = row;
+        }
+        
+        private Patient copy() {
+            if (copy == null) {
+                copy = new Patient(this);
+            }
+            return copy;
+        }
+        
+        @Override
+        public String getPatientId() {
+            return copy != null ? copy.getPatientId() : table.string(row, ID);
+        }
+        
+        @Override
+        public String getNationalHealthNumber() {
+            return copy != null ? copy.getNationalHealthNumber() : table.string(row, NHS_NUMBER);
+        }
+        
+        @Override
+        public String getName() {
+            return copy != null ? copy.getName() : table.string(row, NAME);
+        }
+        
+        @Override
+        public String getAddress() {
+            return copy != null ? copy.getAddress() : table.string(row, ADDRESS);
+        }
+        
+        @Override
+        public LocalDate getDateOfBirth() {
+            return copy != null ? copy.getDateOfBirth() : table.date(row, DATE_OF_BIRTH);
+        }
+        
+        @Override
+        public String getContactDetails() {
+            return copy != null ? copy.getContactDetails() : table.string(row, CONTACT);
+        }
+        
+        @Override
+        public String getRegisteredPractice() {
+            return copy != null ? copy.getRegisteredPractice() : table.string(row, PRACTICE);
+        }
+        
+        @Override
+        public RiskLevel getRiskAssessment() {
+            if (copy != null) {
+                return copy.getRiskAssessment();
+            }
+            return RISK_LEVELS[table.segment(row).get(offset(row) + RISK)];
+        }
+        
+        @Override
+        public boolean isSectioned() {
+            if (copy != null) {
+                return copy.isSectioned();
+            }
+            return (table.segment(row).get(offset(row) + FLAGS) & SECTIONED) != 0;
+        }
+        
+        @Override
+        public LocalDate getSectionedDate() {
+            return copy != null ? copy.getSectionedDate() : table.date(row, SECTIONED_DATE);
+        }
+        
+        @Override
+        public LocalDate getReviewDate() {
+            return copy != null ? copy.getReviewDate() : table.date(row, REVIEW_DATE);
+        }
+        
+        // Conditions are not stored in the table, so they live in the view until it is copied
+        @Override
+        public List<String> getConditions() {
+            return copy != null ? copy.getConditions() : super.getConditions();
+        }
+        
+        @Override
+        public void addCondition(String condition) {
+            if (copy != null) {
+                copy.addCondition(condition);
+            } else {
+                super.addCondition(condition);
+            }
+        }
+        
+        @Override
+        public void removeCondition(String condition) {
+            if (copy != null) {
+                copy.removeCondition(condition);
+            } else {
+                super.removeCondition(condition);
+            }
+        }
+        
+        @Override
+        public int getAge() {
+            return LocalDate.now().getYear() - getDateOfBirth().getYear();
+        }
+        
+        @Override
+        public void setRegisteredPractice(String registeredPractice) {
+            copy().setRegisteredPractice(registeredPractice);
+        }
+        
+        @Override
+        public void setRiskAssessment(RiskLevel riskAssessment) {
+            copy().setRiskAssessment(riskAssessment);
+        }
+        
+        @Override
+        public void setSectioned(boolean sectioned) {
+            copy().setSectioned(sectioned);
+        }
+        
+        @Override
+        public void setSectionedDate(LocalDate sectionedDate) {
+            copy().setSectionedDate(sectionedDate);
+        }
+        
+        @Override
+        public void setReviewDate(LocalDate reviewDate) {
+            copy().setReviewDate(reviewDate);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package mentcare.dao.csv;
+
+import mentcare.dao.spi.ConsultationRepository;
+import mentcare.dao.spi.PatientRepository;
+import mentcare.dao.spi.PrescriptionRepository;
+import mentcare.dao.spi.StorageProvider;
+import mentcare.dao.spi.UserRepository;
+import mentcare.models.Consultation;
+import mentcare.models.Patient;
+import mentcare.models.Prescription;
+import mentcare.utils.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * CSV storage split into one directory per registered practice under data/practices.
+ * Patients without a practice are spread over a fixed number of hash partitions, and
+ * consultations and prescriptions live in their patient's partition, so an edit only
+ * rewrites the files of one practice. Partitions are loaded in parallel on first access.
+ * Setting the mentcare.practice system property limits the session to that practice's
+ * partition. Users stay in the shared data/users.csv.
+ * The first time the layout is used, the flat data/*.csv files are split into partitions,
+ * built in a staging directory that is renamed into place once complete.
+ */
+public class PartitionedCSVStorageProvider implements StorageProvider {
+    public static final String NAME = "csv-partitioned";
+    public static final String PRACTICE_PROPERTY = "mentcare.practice";
+    
+    static final String PARTITION_DIRECTORY = CSVStorageProvider.DATA_DIRECTORY + "/practices";
+    // Where the split is built, so an interrupted split never leaves a partial layout
+    static final String STAGING_DIRECTORY = PARTITION_DIRECTORY + ".staging";
+    // Number of partitions for patients without a registered practice
+    static final int HASH_PARTITIONS = 8;
+    // Practice directories never contain '_', so these cannot collide with one
+    private static final String HASH_PREFIX = "_hash-";
+    // Longest practice directory name; most file systems allow 255 bytes
+    private static final int MAX_DIRECTORY_NAME = 200;
+    
+    private final PartitionedPatientRepository patients = new PartitionedPatientRepository(this);
+    private final PartitionedConsultationRepository consultations = new PartitionedConsultationRepository(this);
+    private final PartitionedPrescriptionRepository prescriptions = new PartitionedPrescriptionRepository(this);
+    private final CSVUserRepository users = new CSVUserRepository(CSVStorageProvider.DATA_DIRECTORY);
+    
+    private final Map<String, CSVPartition> partitions = new LinkedHashMap<>();
+    // Directory new partitions are created in; the staging directory while splitting
+    private File root = new File(PARTITION_DIRECTORY);
+    private boolean opened;
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public PatientRepository patients() { return patients; }
+    
+    @Override
+    public ConsultationRepository consultations() { return consultations; }
+    
+    @Override
+    public PrescriptionRepository prescriptions() { return prescriptions; }
+    
+    @Override
+    public UserRepository users() { return users; }
+    
+    @Override
+    public void checkpoint() {
+        for (CSVPartition partition : partitions()) {
+            partition.checkpoint();
+        }
+        users.checkpoint();
+    }
+    
+    @Override
+    public void invalidate() {
+        for (CSVPartition partition : partitions()) {
+            partition.invalidate();
+        }
+        users.invalidate();
+    }
+    
+    // Every partition visible to this session, loaded on first call
+    synchronized List<CSVPartition> partitions() {
+        if (!opened) {
+            // Set first because splitting routes records through partition()
+            opened = true;
+            try {
+                open();
+            } catch (RuntimeException e) {
+                opened = false;
+                partitions.clear();
+                throw e;
+            }
+        }
+        return new ArrayList<>(partitions.values());
+    }
+    
+    // The partition a patient belongs in, created if it does not exist yet
+    CSVPartition partitionFor(Patient patient) {
+        String practice = patient.getRegisteredPractice();
+        return partition(practice != null && !practice.trim().isEmpty()
+            ? practiceDirectory(practice) : hashDirectory(patient.getPatientId()));
+    }
+    
+    // The partition holding records that belong to a patient
+    CSVPartition partitionForPatient(String patientId) {
+        for (CSVPartition partition : partitions()) {
+            if (partition.patients.findById(patientId) != null) {
+                return partition;
+            }
+        }
+        // Unknown patients route the same way as a patient without a practice
+        return partition(hashDirectory(patientId));
+    }
+    
+    private synchronized CSVPartition partition(String directoryName) {
+        partitions();
+        return partitions.computeIfAbsent(directoryName,
+            name -> CSVPartition.open(new File(root, name)));
+    }
+    
+    private void open() {
+        if (!root.exists()) {
+            // Another process starting at the same time must not split the files too
+            DataLock splitLock = new DataLock(PARTITION_DIRECTORY);
+            splitLock.lockExclusive();
+            try {
+                if (!root.exists() && new File(CSVStorageProvider.DATA_DIRECTORY, CSVPatientRepository.PATIENTS_CSV).exists()) {
+                    splitFlatFiles();
+                }
+            } finally {
+                splitLock.unlockExclusive();
+            }
+        }
+        
+        String scope = System.getProperty(PRACTICE_PROPERTY);
+        if (scope != null && !scope.trim().isEmpty()) {
+            String name = practiceDirectory(scope);
+            partitions.put(name, CSVPartition.open(new File(root, name)));
+        } else {
+            File[] directories = root.listFiles(File::isDirectory);
+            if (directories != null) {
+                for (File directory : directories) {
+                    partitions.put(directory.getName(), CSVPartition.open(directory));
+                }
+            }
+        }
+        
+        // Partitions are independent files, so they can be parsed side by side
+        partitions.values().parallelStream().forEach(CSVPartition::load);
+    }
+    
+    // One-off move from the single-file layout; the flat files are left in place
+    private void splitFlatFiles() {
+        File target = root;
+        File staging = new File(STAGING_DIRECTORY);
+        // Left over from a split that did not finish
+        deleteTree(staging.toPath());
+        root = staging;
+        try {
+            splitInto();
+            Files.move(staging.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error moving split partitions into " + target, e);
+        } finally {
+            partitions.clear();
+            root = target;
+        }
+        Log.info("Split CSV data into " + target.list().length + " partitions under " + PARTITION_DIRECTORY);
+    }
+    
+    // Fills the partitions under root from the flat files and checkpoints them
+    private void splitInto() {
+        CSVStorageProvider flat = new CSVStorageProvider();
+        Map<String, CSVPartition> byPatient = new HashMap<>();
+        
+        Map<CSVPartition, List<Patient>> patientsByPartition = new LinkedHashMap<>();
+        for (Patient patient : flat.patients().findAll()) {
+            CSVPartition partition = partitionFor(patient);
+            byPatient.put(patient.getPatientId(), partition);
+            patientsByPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(patient);
+        }
+        patientsByPartition.forEach((partition, list) -> partition.patients.saveAll(list));
+        
+        Map<CSVPartition, List<Consultation>> consultationsByPartition = new LinkedHashMap<>();
+        for (Consultation consultation : flat.consultations().findAll()) {
+            CSVPartition partition = byPatient.computeIfAbsent(consultation.getPatientId(),
+                id -> partition(hashDirectory(id)));
+            consultationsByPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(consultation);
+        }
+        consultationsByPartition.forEach((partition, list) -> partition.consultations.saveAll(list));
+        
+        Map<CSVPartition, List<Prescription>> prescriptionsByPartition = new LinkedHashMap<>();
+        for (Prescription prescription : flat.prescriptions().findAll()) {
+            CSVPartition partition = byPatient.computeIfAbsent(prescription.getPatientId(),
+                id -> partition(hashDirectory(id)));
+            prescriptionsByPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(prescription);
+        }
+        prescriptionsByPartition.forEach((partition, list) -> partition.prescriptions.saveAll(list));
+        
+        for (CSVPartition partition : partitions.values()) {
+            partition.checkpoint();
+        }
+    }
+    
+    private static void deleteTree(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            // Children before their directories
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error removing " + directory, e);
+        }
+    }
+    
+    /**
+     * Directory name of a practice, distinct for every distinct (trimmed) practice name.
+     * Lower-case letters, digits and '-' are kept; an upper-case letter becomes '^' and the
+     * letter, and any other character '~' and its four hex digits. The result never differs
+     * from another only by case, is never "." or "..", and never contains a separator or '_'.
+     */
+    static String practiceDirectory(String practice) {
+        String trimmed = practice.trim();
+        StringBuilder name = new StringBuilder(trimmed.length() + 8);
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-') {
+                name.append(c);
+            } else if (c >= 'A' && c <= 'Z') {
+                name.append('^').append(Character.toLowerCase(c));
+            } else {
+                name.append('~').append(String.format("%04x", (int) c));
+            }
+        }
+        if (name.length() > MAX_DIRECTORY_NAME) {
+            throw new IllegalArgumentException("Practice name is too long: " + trimmed);
+        }
+        return name.toString();
+    }
+    
+    static String hashDirectory(String patientId) {
+        return HASH_PREFIX + Math.floorMod(patientId.hashCode(), HASH_PARTITIONS);
+    }
+}
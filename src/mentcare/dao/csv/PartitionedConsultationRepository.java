@@ -0,0 +1,52 @@
+package mentcare.dao.csv;
+
+import mentcare.dao.spi.ConsultationRepository;
+import mentcare.models.Consultation;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class PartitionedConsultationRepository extends PartitionedRepository<Consultation> implements ConsultationRepository {
+    
+    PartitionedConsultationRepository(PartitionedCSVStorageProvider provider) {
+        super(provider, Consultation::getConsultationId);
+    }
+    
+    @Override
+    CSVRepository<Consultation> repositoryIn(CSVPartition partition) {
+        return partition.consultations;
+    }
+    
+    @Override
+    CSVPartition partitionFor(Consultation consultation) {
+        return provider.partitionForPatient(consultation.getPatientId());
+    }
+    
+    @Override
+    public List<Consultation> findByPatient(String patientId) {
+        return provider.partitionForPatient(patientId).consultations.findByPatient(patientId);
+    }
+    
+    @Override
+    public Map<String, Integer> countByPatient() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (CSVPartition partition : provider.partitions()) {
+            partition.consultations.countByPatient().forEach((id, count) -> counts.merge(id, count, Integer::sum));
+        }
+        return counts;
+    }
+    
+    @Override
+    public List<Consultation> findBetween(LocalDateTime from, LocalDateTime to) {
+        List<Consultation> result = new ArrayList<>();
+        for (CSVPartition partition : provider.partitions()) {
+            result.addAll(partition.consultations.findBetween(from, to));
+        }
+        result.sort(Comparator.comparing(Consultation::getDateTime));
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+package mentcare.dao.csv;
+
+import mentcare.dao.spi.PatientRepository;
+import mentcare.models.Consultation;
+import mentcare.models.Patient;
+import mentcare.models.Prescription;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+class PartitionedPatientRepository extends PartitionedRepository<Patient> implements PatientRepository {
+    
+    PartitionedPatientRepository(PartitionedCSVStorageProvider provider) {
+        super(provider, Patient::getPatientId);
+    }
+    
+    @Override
+    CSVRepository<Patient> repositoryIn(CSVPartition partition) {
+        return partition.patients;
+    }
+    
+    @Override
+    CSVPartition partitionFor(Patient patient) {
+        return provider.partitionFor(patient);
+    }
+    
+    // A patient's records follow them when their registered practice changes
+    @Override
+    void afterMove(Patient patient, CSVPartition from, CSVPartition to) {
+        List<Consultation> consultations = from.consultations.findByPatient(patient.getPatientId());
+        if (!consultations.isEmpty()) {
+            to.consultations.saveAll(consultations);
+            from.consultations.deleteAll(consultations.stream()
+                .map(Consultation::getConsultationId).collect(Collectors.toList()));
+        }
+        List<Prescription> prescriptions = from.prescriptions.findByPatient(patient.getPatientId());
+        if (!prescriptions.isEmpty()) {
+            to.prescriptions.saveAll(prescriptions);
+            from.prescriptions.deleteAll(prescriptions.stream()
+                .map(Prescription::getPrescriptionId).collect(Collectors.toList()));
+        }
+    }
+    
+    @Override
+    public Patient findByNationalHealthNumber(String nationalHealthNumber) {
+        for (CSVPartition partition : provider.partitions()) {
+            Patient patient = partition.patients.findByNationalHealthNumber(nationalHealthNumber);
+            if (patient != null) {
+                return patient;
+            }
+        }
+        return null;
+    }
+}
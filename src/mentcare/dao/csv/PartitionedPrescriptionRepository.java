@@ -0,0 +1,41 @@
+package mentcare.dao.csv;
+
+import mentcare.dao.spi.PrescriptionRepository;
+import mentcare.models.Prescription;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+class PartitionedPrescriptionRepository extends PartitionedRepository<Prescription> implements PrescriptionRepository {
+    
+    PartitionedPrescriptionRepository(PartitionedCSVStorageProvider provider) {
+        super(provider, Prescription::getPrescriptionId);
+    }
+    
+    @Override
+    CSVRepository<Prescription> repositoryIn(CSVPartition partition) {
+        return partition.prescriptions;
+    }
+    
+    @Override
+    CSVPartition partitionFor(Prescription prescription) {
+        return provider.partitionForPatient(prescription.getPatientId());
+    }
+    
+    @Override
+    public List<Prescription> findByPatient(String patientId) {
+        return provider.partitionForPatient(patientId).prescriptions.findByPatient(patientId);
+    }
+    
+    @Override
+    public List<Prescription> findActiveBetween(LocalDate from, LocalDate to) {
+        List<Prescription> result = new ArrayList<>();
+        for (CSVPartition partition : provider.partitions()) {
+            result.addAll(partition.prescriptions.findActiveBetween(from, to));
+        }
+        result.sort(Comparator.comparing(Prescription::getStartDate, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return result;
+    }
+}
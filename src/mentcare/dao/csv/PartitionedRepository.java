@@ -0,0 +1,152 @@
+package mentcare.dao.csv;
+
+import mentcare.dao.spi.Repository;
+import mentcare.utils.StripedLock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Spreads one entity's records over the partitions of a PartitionedCSVStorageProvider
+abstract class PartitionedRepository<T> implements Repository<T> {
+    final PartitionedCSVStorageProvider provider;
+    private final Function<T, String> idOf;
+    // Updates to one record are routed one at a time, so concurrent saves cannot leave it in two partitions
+    private final StripedLock idLocks = new StripedLock(64);
+    
+    PartitionedRepository(PartitionedCSVStorageProvider provider, Function<T, String> idOf) {
+        this.provider = provider;
+        this.idOf = idOf;
+    }
+    
+    abstract CSVRepository<T> repositoryIn(CSVPartition partition);
+    
+    // The partition a record should be stored in
+    abstract CSVPartition partitionFor(T record);
+    
+    // Called after a record was moved to another partition
+    void afterMove(T record, CSVPartition from, CSVPartition to) {
+    }
+    
+    // Opens and loads every partition, which the first repository to get here does for all
+    @Override
+    public void load() {
+        provider.partitions();
+    }
+    
+    @Override
+    public List<T> findAll() {
+        List<T> all = new ArrayList<>();
+        for (CSVPartition partition : provider.partitions()) {
+            all.addAll(repositoryIn(partition).findAll());
+        }
+        return all;
+    }
+    
+    @Override
+    public Stream<T> stream() {
+        return provider.partitions().stream().flatMap(partition -> repositoryIn(partition).stream());
+    }
+    
+    @Override
+    public T findById(String id) {
+        for (CSVPartition partition : provider.partitions()) {
+            T record = repositoryIn(partition).findById(id);
+            if (record != null) {
+                return record;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public boolean save(T record) {
+        return !saveAll(Collections.singletonList(record)).isEmpty();
+    }
+    
+    // One write per partition touched; a record whose partition changed is removed from the old one
+    @Override
+    public Set<String> saveAll(Collection<T> records) {
+        List<String> ids = new ArrayList<>(records.size());
+        for (T record : records) {
+            ids.add(idOf.apply(record));
+        }
+        int[] held = idLocks.lockAll(ids);
+        try {
+            return route(records);
+        } finally {
+            idLocks.unlockAll(held);
+        }
+    }
+    
+    // IDs replaced in the target partition or moved from another one
+    private Set<String> route(Collection<T> records) {
+        Map<CSVPartition, List<T>> byPartition = new LinkedHashMap<>();
+        Map<CSVPartition, List<String>> moved = new LinkedHashMap<>();
+        List<T> movedRecords = new ArrayList<>();
+        List<CSVPartition> movedFrom = new ArrayList<>();
+        for (T record : records) {
+            CSVPartition target = partitionFor(record);
+            byPartition.computeIfAbsent(target, p -> new ArrayList<>()).add(record);
+            
+            String id = idOf.apply(record);
+            for (CSVPartition partition : provider.partitions()) {
+                if (partition != target && repositoryIn(partition).findById(id) != null) {
+                    moved.computeIfAbsent(partition, p -> new ArrayList<>()).add(id);
+                    movedRecords.add(record);
+                    movedFrom.add(partition);
+                }
+            }
+        }
+        
+        Set<String> replaced = new HashSet<>();
+        byPartition.forEach((partition, batch) -> replaced.addAll(repositoryIn(partition).saveAll(batch)));
+        moved.forEach((partition, ids) -> replaced.addAll(repositoryIn(partition).deleteAll(ids)));
+        for (int i = 0; i < movedRecords.size(); i++) {
+            T record = movedRecords.get(i);
+            afterMove(record, movedFrom.get(i), partitionFor(record));
+        }
+        return replaced;
+    }
+    
+    @Override
+    public boolean delete(String id) {
+        return !deleteAll(Collections.singletonList(id)).isEmpty();
+    }
+    
+    // Only partitions that hold one of the records are rewritten
+    @Override
+    public Set<String> deleteAll(Collection<String> ids) {
+        int[] held = idLocks.lockAll(ids);
+        try {
+            return deleteFromPartitions(ids);
+        } finally {
+            idLocks.unlockAll(held);
+        }
+    }
+    
+    private Set<String> deleteFromPartitions(Collection<String> ids) {
+        Set<String> removed = new LinkedHashSet<>();
+        for (CSVPartition partition : provider.partitions()) {
+            CSVRepository<T> repository = repositoryIn(partition);
+            List<String> present = new ArrayList<>();
+            for (String id : ids) {
+                if (repository.findById(id) != null) {
+                    present.add(id);
+                }
+            }
+            if (!present.isEmpty()) {
+                removed.addAll(repository.deleteAll(present));
+            }
+        }
+        return removed;
+    }
+}
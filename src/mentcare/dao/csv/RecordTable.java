@@ -0,0 +1,41 @@
+package mentcare.dao.csv;
+
+import java.util.List;
+
+/**
+ * Records of one store, addressed by the int surrogate of their ID.
+ * Surrogates are handed out in insertion order, so iterating them gives file order;
+ * replacing a record keeps its surrogate, and a deleted one is left empty. Indexes refer to
+ * records by surrogate rather than by ID string.
+ */
+interface RecordTable<T> {
+    // Live records
+    int size();
+    
+    // One past the highest surrogate in use
+    int limit();
+    
+    // Stores the record under its ID and returns the ID's surrogate
+    int put(String id, T record);
+    
+    // Surrogate of the removed record, or -1 if there was none
+    int remove(String id);
+    
+    T get(String id);
+    
+    // Null for a deleted surrogate
+    T get(int surrogate);
+    
+    // Live records in surrogate order
+    List<T> values();
+    
+    void clear();
+    
+    // Read-only copy sharing this table's storage; later writes to this table do not show in it
+    RecordTable<T> snapshot();
+    
+    // The same records under the same surrogates, rebuilt if that frees replaced storage
+    default RecordTable<T> compact() {
+        return this;
+    }
+}
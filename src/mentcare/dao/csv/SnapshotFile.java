@@ -0,0 +1,215 @@
+package mentcare.dao.csv;
+
+import mentcare.utils.Log;
+import mentcare.utils.StringDictionary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Versioned binary copy of an entity CSV file, used to skip CSV parsing at startup.
+ * Layout: magic, format version, entity name, the CSV file's modification time and size
+ * at the moment the snapshot was taken, record count, then the records written by the
+ * entity's codec. Strings are length-prefixed UTF-8, dates are epoch-day ints and enums ordinals.
+ * Repetitive columns are dictionary coded: see StringCodes.
+ * A snapshot is only used while the CSV still has the recorded modification time and size.
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x4D43534E; // "MCSN"
+    // Bump whenever a codec changes so older snapshots are rebuilt from the CSV
+    private static final int VERSION = 3;
+    private static final int NULL_LENGTH = -1;
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    
+    interface Codec<T> {
+        void write(DataOutput out, T record, StringCodes codes) throws IOException;
+        T read(DataInput in, StringCodes codes) throws IOException;
+    }
+    
+    /**
+     * Int codes for the values of dictionary-coded columns within one snapshot, one code
+     * space per column (identified by its StringDictionary). A value is written in full the
+     * first time its column meets it and as its code after that; reading interns each new
+     * value through the column's dictionary, so equal fields share one String.
+     */
+    static final class StringCodes {
+        private static final int NEW_VALUE = -2;
+        
+        private final Map<StringDictionary, Map<String, Integer>> written = new HashMap<>();
+        private final Map<StringDictionary, List<String>> read = new HashMap<>();
+        
+        void write(DataOutput out, StringDictionary column, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(NULL_LENGTH);
+                return;
+            }
+            Map<String, Integer> codes = written.computeIfAbsent(column, c -> new HashMap<>());
+            Integer code = codes.get(value);
+            if (code != null) {
+                out.writeInt(code);
+                return;
+            }
+            codes.put(value, codes.size());
+            out.writeInt(NEW_VALUE);
+            writeString(out, value);
+        }
+        
+        String read(DataInput in, StringDictionary column) throws IOException {
+            int code = in.readInt();
+            if (code == NULL_LENGTH) {
+                return null;
+            }
+            List<String> values = read.computeIfAbsent(column, c -> new ArrayList<>());
+            if (code == NEW_VALUE) {
+                String value = column.intern(readString(in));
+                values.add(value);
+                return value;
+            }
+            if (code < 0 || code >= values.size()) {
+                throw new IOException("Invalid string code " + code);
+            }
+            return values.get(code);
+        }
+        
+        void writeAll(DataOutput out, StringDictionary column, List<String> values) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                write(out, column, value);
+            }
+        }
+        
+        void readAll(DataInput in, StringDictionary column, List<String> target) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                target.add(read(in, column));
+            }
+        }
+    }
+    
+    private SnapshotFile() {
+    }
+    
+    // Fills records in file order; false if the snapshot is missing, stale or unreadable
+    static <T> boolean read(String snapshotName, String entityName, File csvFile, Codec<T> codec,
+                            Function<T, String> idFunction, RecordTable<T> records) {
+        File file = new File(snapshotName);
+        if (!file.exists()) {
+            return false;
+        }
+        
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(entityName)) {
+                return false;
+            }
+            if (in.readLong() != csvFile.lastModified() || in.readLong() != csvFile.length()) {
+                return false; // CSV changed since the snapshot was taken
+            }
+            
+            int count = in.readInt();
+            StringCodes codes = new StringCodes();
+            for (int i = 0; i < count; i++) {
+                T record = codec.read(in, codes);
+                records.put(idFunction.apply(record), record);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.warn("Ignoring unreadable snapshot " + snapshotName + ": " + e.getMessage());
+            records.clear();
+            return false;
+        }
+    }
+    
+    // csvModified and csvSize describe the CSV contents the records were read from or written to
+    static <T> void write(String snapshotName, String entityName, long csvModified, long csvSize,
+                          Codec<T> codec, Collection<T> records) {
+        // Per-process name: another process may be writing the same snapshot
+        File temp = new File(snapshotName + "." + ProcessHandle.current().pid() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(entityName);
+            out.writeLong(csvModified);
+            out.writeLong(csvSize);
+            out.writeInt(records.size());
+            StringCodes codes = new StringCodes();
+            for (T record : records) {
+                codec.write(out, record, codes);
+            }
+        } catch (IOException e) {
+            Log.error("Error writing snapshot " + snapshotName + ": " + e.getMessage());
+            temp.delete();
+            return;
+        }
+        
+        try {
+            Files.move(temp.toPath(), Paths.get(snapshotName),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Log.error("Error replacing snapshot " + snapshotName + ": " + e.getMessage());
+        }
+    }
+    
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeInt(date != null ? (int) date.toEpochDay() : NULL_DATE);
+    }
+    
+    static LocalDate readDate(DataInput in) throws IOException {
+        int epochDay = in.readInt();
+        return epochDay != NULL_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+    
+    static void writeDateTime(DataOutput out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+    
+    static LocalDateTime readDateTime(DataInput in) throws IOException {
+        long epochSecond = in.readLong();
+        int nano = in.readInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+}
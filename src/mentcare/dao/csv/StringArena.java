@@ -0,0 +1,84 @@
+package mentcare.dao.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only store of strings in direct (off-heap) memory.
+ * Each string is written as a length-prefixed UTF-8 run in fixed-size chunks and addressed by
+ * a long reference (chunk number in the high half, offset in the low half), so the garbage
+ * collector sees a handful of buffers however many strings are held. Space is never reused;
+ * replaced strings stay until the arena itself is dropped.
+ * One thread adds while any number read: written bytes never change, and readers only use
+ * absolute reads, so they need no lock once a reference has been handed to them safely.
+ */
+final class StringArena {
+    static final long NULL_REF = -1;
+    private static final int CHUNK_BYTES = 16 * 1024 * 1024;
+    
+    // Replaced whole when it grows, so readers always see a complete array
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private ByteBuffer current;
+    private int position;
+    
+    long add(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int needed = Integer.BYTES + bytes.length;
+        if (current == null || current.capacity() - position < needed) {
+            // Strings longer than a chunk get a chunk of their own
+            current = ByteBuffer.allocateDirect(Math.max(CHUNK_BYTES, needed));
+            position = 0;
+            ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[grown.length - 1] = current;
+            chunks = grown;
+        }
+        long ref = ((long) (chunks.length - 1) << 32) | position;
+        current.putInt(position, bytes.length);
+        current.put(position + Integer.BYTES, bytes);
+        position += needed;
+        return ref;
+    }
+    
+    String get(long ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        ByteBuffer chunk = chunks[(int) (ref >>> 32)];
+        int offset = (int) ref;
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        chunk.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    // Compares with an already encoded string without decoding the stored one
+    boolean matches(long ref, byte[] utf8) {
+        if (ref == NULL_REF) {
+            return false;
+        }
+        ByteBuffer chunk = chunks[(int) (ref >>> 32)];
+        int offset = (int) ref;
+        if (chunk.getInt(offset) != utf8.length) {
+            return false;
+        }
+        offset += Integer.BYTES;
+        for (int i = 0; i < utf8.length; i++) {
+            if (chunk.get(offset + i) != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Off-heap bytes reserved so far
+    long capacity() {
+        long capacity = 0;
+        for (ByteBuffer chunk : chunks) {
+            capacity += chunk.capacity();
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,42 @@
+package mentcare.dao.jdbc;
+
+import mentcare.dao.csv.CSVStorageProvider;
+import mentcare.models.Consultation;
+import mentcare.models.Patient;
+import mentcare.models.Prescription;
+import mentcare.models.User;
+import mentcare.utils.Log;
+
+import java.sql.SQLException;
+import java.util.List;
+
+// One-off copy of the CSV data files into a newly created database
+final class CSVImporter {
+    static final String TASK = "csv_import";
+    
+    private CSVImporter() {
+    }
+    
+    // Runs inside the caller's transaction, so a failure leaves the database as it was
+    static void importAll(ConnectionPool.PooledConnection connection, JDBCUserRepository userTable,
+                          JDBCPatientRepository patientTable, JDBCConsultationRepository consultationTable,
+                          JDBCPrescriptionRepository prescriptionTable) throws SQLException {
+        CSVStorageProvider source = new CSVStorageProvider();
+        
+        List<User> users = source.users().findAll();
+        userTable.saveAll(connection, users);
+        
+        List<Patient> patients = source.patients().findAll();
+        patientTable.saveAll(connection, patients);
+        
+        List<Consultation> consultations = source.consultations().findAll();
+        consultationTable.saveAll(connection, consultations);
+        
+        List<Prescription> prescriptions = source.prescriptions().findAll();
+        prescriptionTable.saveAll(connection, prescriptions);
+        
+        Log.info("Imported CSV data into database: " + users.size() + " users, "
+            + patients.size() + " patients, " + consultations.size() + " consultations, "
+            + prescriptions.size() + " prescriptions");
+    }
+}
@@ -0,0 +1,172 @@
+package mentcare.dao.jdbc;
+
+import mentcare.utils.Log;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small fixed-size pool of JDBC connections.
+ * Each pooled connection keeps its own cache of prepared statements keyed by SQL text,
+ * so a statement is parsed and planned once per connection rather than once per call.
+ */
+final class ConnectionPool {
+    // Seconds to wait for a free connection before giving up
+    private static final int BORROW_TIMEOUT = 30;
+    
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final BlockingQueue<PooledConnection> idle;
+    private int created;
+    
+    ConnectionPool(String url, String user, String password, int maxSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+    
+    // Close the returned connection to give it back to the pool
+    PooledConnection borrow() throws SQLException {
+        PooledConnection connection = idle.poll();
+        if (connection != null) {
+            return connection;
+        }
+        synchronized (this) {
+            if (created < maxSize) {
+                created++;
+                try {
+                    return new PooledConnection(DriverManager.getConnection(url, user, password));
+                } catch (SQLException e) {
+                    created--;
+                    throw e;
+                }
+            }
+        }
+        try {
+            connection = idle.poll(BORROW_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (connection == null) {
+            throw new SQLException("No database connection available after " + BORROW_TIMEOUT + " seconds");
+        }
+        return connection;
+    }
+    
+    private void release(PooledConnection connection) {
+        boolean usable;
+        try {
+            usable = !connection.connection.isClosed() && connection.connection.getAutoCommit();
+        } catch (SQLException e) {
+            usable = false;
+        }
+        if (usable) {
+            idle.offer(connection);
+            return;
+        }
+        connection.discard();
+        synchronized (this) {
+            created--;
+        }
+    }
+    
+    synchronized void close() {
+        PooledConnection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.discard();
+            created--;
+        }
+    }
+    
+    final class PooledConnection implements AutoCloseable {
+        // Statements kept per connection; the least recently used is closed past this
+        private static final int STATEMENT_CACHE_SIZE = 64;
+        
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements =
+            new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= STATEMENT_CACHE_SIZE) {
+                        return false;
+                    }
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+            };
+        
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+        
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+            }
+            return statement;
+        }
+        
+        // Run the work in one transaction, rolling back if it fails
+        <R> R inTransaction(SQLWork<R> work) throws SQLException {
+            connection.setAutoCommit(false);
+            try {
+                R result = work.run(this);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        
+        Connection getConnection() {
+            return connection;
+        }
+        
+        @Override
+        public void close() {
+            release(this);
+        }
+        
+        private void discard() {
+            for (PreparedStatement statement : statements.values()) {
+                closeQuietly(statement);
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                Log.error("Error closing database connection: " + e.getMessage());
+            }
+        }
+    }
+    
+    interface SQLWork<R> {
+        R run(PooledConnection connection) throws SQLException;
+    }
+    
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // Already unusable; nothing to recover
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package mentcare.dao.jdbc;
+
+import mentcare.dao.spi.ConsultationRepository;
+import mentcare.models.Consultation;
+import mentcare.utils.Log;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class JDBCConsultationRepository extends JDBCRepository<Consultation> implements ConsultationRepository {
+    private static final String COUNT_BY_PATIENT =
+        "SELECT patient_id, COUNT(*) FROM consultations GROUP BY patient_id";
+    
+    JDBCConsultationRepository(JDBCStorageProvider provider) {
+        super(provider, "consultations", "consultation_id", "patient_id", "date_time", "staff_ids",
+            "impressions", "diagnoses", "referrals", "record_updated");
+    }
+    
+    @Override
+    public List<Consultation> findByPatient(String patientId) {
+        return query(select + " WHERE patient_id = ? ORDER BY date_time", patientId);
+    }
+    
+    @Override
+    public Map<String, Integer> countByPatient() {
+        Map<String, Integer> counts = new HashMap<>();
+        try (ConnectionPool.PooledConnection connection = provider.pool().borrow();
+             ResultSet rows = connection.prepare(COUNT_BY_PATIENT).executeQuery()) {
+            while (rows.next()) {
+                counts.put(rows.getString(1), rows.getInt(2));
+            }
+        } catch (SQLException e) {
+            Log.error("Error counting consultations: " + e.getMessage());
+        }
+        return counts;
+    }
+    
+    @Override
+    public List<Consultation> findBetween(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null) {
+            return query(select + " WHERE date_time BETWEEN ? AND ? ORDER BY date_time", from, to);
+        } else if (from != null) {
+            return query(select + " WHERE date_time >= ? ORDER BY date_time", from);
+        } else if (to != null) {
+            return query(select + " WHERE date_time <= ? ORDER BY date_time", to);
+        }
+        return query(select + " ORDER BY date_time");
+    }
+    
+    @Override
+    void bind(PreparedStatement statement, Consultation consultation) throws SQLException {
+        statement.setString(1, consultation.getConsultationId());
+        statement.setString(2, consultation.getPatientId());
+        statement.setObject(3, consultation.getDateTime());
+        statement.setString(4, joinList(consultation.getStaffIds()));
+        statement.setString(5, consultation.getSubjectiveImpressions());
+        statement.setString(6, joinList(consultation.getDiagnoses()));
+        statement.setString(7, joinList(consultation.getReferrals()));
+        statement.setBoolean(8, consultation.isRecordUpdated());
+    }
+    
+    @Override
+    Consultation read(ResultSet row) throws SQLException {
+        Consultation consultation = new Consultation(
+            row.getString(1), // consultationId
+            row.getString(2), // patientId
+            row.getObject(3, LocalDateTime.class) // dateTime
+        );
+        splitList(row.getString(4), consultation.getStaffIds());
+        consultation.setSubjectiveImpressions(row.getString(5));
+        splitList(row.getString(6), consultation.getDiagnoses());
+        splitList(row.getString(7), consultation.getReferrals());
+        consultation.setRecordUpdated(row.getBoolean(8));
+        return consultation;
+    }
+    
+    @Override
+    String idOf(Consultation consultation) {
+        return consultation.getConsultationId();
+    }
+}
@@ -0,0 +1,67 @@
+package mentcare.dao.jdbc;
+
+import mentcare.dao.spi.PatientRepository;
+import mentcare.models.Patient;
+import mentcare.utils.Log;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+class JDBCPatientRepository extends JDBCRepository<Patient> implements PatientRepository {
+    JDBCPatientRepository(JDBCStorageProvider provider) {
+        super(provider, "patients", "patient_id", "nhs_number", "name", "address", "date_of_birth",
+            "contact_details", "risk_level", "sectioned", "sectioned_date", "review_date", "registered_practice");
+    }
+    
+    @Override
+    public Patient findByNationalHealthNumber(String nationalHealthNumber) {
+        List<Patient> matches = query(select + " WHERE nhs_number = ?", nationalHealthNumber);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+    
+    @Override
+    void bind(PreparedStatement statement, Patient patient) throws SQLException {
+        statement.setString(1, patient.getPatientId());
+        statement.setString(2, patient.getNationalHealthNumber());
+        statement.setString(3, patient.getName());
+        statement.setString(4, patient.getAddress());
+        statement.setObject(5, patient.getDateOfBirth());
+        statement.setString(6, patient.getContactDetails());
+        statement.setString(7, patient.getRiskAssessment().name());
+        statement.setBoolean(8, patient.isSectioned());
+        statement.setObject(9, patient.getSectionedDate());
+        statement.setObject(10, patient.getReviewDate());
+        statement.setString(11, patient.getRegisteredPractice());
+    }
+    
+    @Override
+    Patient read(ResultSet row) throws SQLException {
+        Patient patient = new Patient(
+            row.getString(1), // patientId
+            row.getString(2), // nationalHealthNumber
+            row.getString(3), // name
+            row.getString(4), // address
+            row.getObject(5, LocalDate.class), // dateOfBirth
+            row.getString(6)  // contactDetails
+        );
+        try {
+            patient.setRiskAssessment(Patient.RiskLevel.valueOf(row.getString(7)));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            Log.warn("Invalid risk level: " + row.getString(7) + ". Using LOW as default.");
+            patient.setRiskAssessment(Patient.RiskLevel.LOW);
+        }
+        patient.setSectioned(row.getBoolean(8));
+        patient.setSectionedDate(row.getObject(9, LocalDate.class));
+        patient.setReviewDate(row.getObject(10, LocalDate.class));
+        patient.setRegisteredPractice(row.getString(11));
+        return patient;
+    }
+    
+    @Override
+    String idOf(Patient patient) {
+        return patient.getPatientId();
+    }
+}
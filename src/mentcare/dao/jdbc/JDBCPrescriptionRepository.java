@@ -0,0 +1,64 @@
+package mentcare.dao.jdbc;
+
+import mentcare.dao.spi.PrescriptionRepository;
+import mentcare.models.Prescription;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+class JDBCPrescriptionRepository extends JDBCRepository<Prescription> implements PrescriptionRepository {
+    JDBCPrescriptionRepository(JDBCStorageProvider provider) {
+        super(provider, "prescriptions", "prescription_id", "patient_id", "drug_name", "dosage",
+            "frequency", "start_date", "end_date", "prescriber_id", "is_repeat", "comments");
+    }
+    
+    @Override
+    public List<Prescription> findByPatient(String patientId) {
+        return query(select + " WHERE patient_id = ? ORDER BY start_date", patientId);
+    }
+    
+    @Override
+    public List<Prescription> findActiveBetween(LocalDate from, LocalDate to) {
+        return query(select + " WHERE start_date <= ? AND (end_date IS NULL OR end_date >= ?)"
+            + " ORDER BY start_date", to, from);
+    }
+    
+    @Override
+    void bind(PreparedStatement statement, Prescription prescription) throws SQLException {
+        statement.setString(1, prescription.getPrescriptionId());
+        statement.setString(2, prescription.getPatientId());
+        statement.setString(3, prescription.getDrugName());
+        statement.setString(4, prescription.getDosage());
+        statement.setString(5, prescription.getFrequency());
+        statement.setObject(6, prescription.getStartDate());
+        statement.setObject(7, prescription.getEndDate());
+        statement.setString(8, prescription.getPrescriberId());
+        statement.setBoolean(9, prescription.isRepeat());
+        statement.setString(10, prescription.getComments());
+    }
+    
+    @Override
+    Prescription read(ResultSet row) throws SQLException {
+        Prescription prescription = new Prescription(
+            row.getString(1), // prescriptionId
+            row.getString(2), // patientId
+            row.getString(3), // drugName
+            row.getString(4), // dosage
+            row.getString(5), // frequency
+            row.getObject(6, LocalDate.class), // startDate
+            row.getString(8)  // prescriberId
+        );
+        prescription.setEndDate(row.getObject(7, LocalDate.class));
+        prescription.setRepeat(row.getBoolean(9));
+        prescription.setComments(row.getString(10));
+        return prescription;
+    }
+    
+    @Override
+    String idOf(Prescription prescription) {
+        return prescription.getPrescriptionId();
+    }
+}
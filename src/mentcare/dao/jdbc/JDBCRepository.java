@@ -0,0 +1,198 @@
+package mentcare.dao.jdbc;
+
+import mentcare.dao.spi.Repository;
+import mentcare.utils.Log;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Repository operations common to every entity, mapped onto one table.
+ * The first column is the primary key. A save replaces the row (delete then insert),
+ * which keeps the statements portable and lets a whole batch run as two JDBC batches
+ * in a single transaction. The delete batch's update counts tell which IDs existed.
+ */
+abstract class JDBCRepository<T> implements Repository<T> {
+    // Tries of a save that collides with a concurrent insert of the same ID
+    private static final int SAVE_ATTEMPTS = 3;
+    
+    final JDBCStorageProvider provider;
+    private final String table;
+    private final String idColumn;
+    private final String selectAll;
+    private final String insert;
+    private final String deleteById;
+    final String select;
+    
+    JDBCRepository(JDBCStorageProvider provider, String table, String... columns) {
+        this.provider = provider;
+        this.table = table;
+        this.idColumn = columns[0];
+        this.select = "SELECT " + String.join(", ", columns) + " FROM " + table;
+        this.selectAll = select + " ORDER BY " + idColumn;
+        this.insert = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+            + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+        this.deleteById = "DELETE FROM " + table + " WHERE " + idColumn + " = ?";
+    }
+    
+    // Bind every column, in declaration order, starting at parameter 1
+    abstract void bind(PreparedStatement statement, T record) throws SQLException;
+    
+    abstract T read(ResultSet row) throws SQLException;
+    
+    abstract String idOf(T record);
+    
+    // Rows are queried on demand, so only the pool and schema are set up ahead of time
+    @Override
+    public void load() {
+        provider.pool();
+    }
+    
+    @Override
+    public List<T> findAll() {
+        return query(selectAll);
+    }
+    
+    // Materialized, so no pooled connection is held open by an unclosed stream
+    @Override
+    public Stream<T> stream() {
+        return findAll().stream();
+    }
+    
+    @Override
+    public T findById(String id) {
+        List<T> matches = query(select + " WHERE " + idColumn + " = ?", id);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+    
+    @Override
+    public boolean save(T record) {
+        return !saveAll(Collections.singletonList(record)).isEmpty();
+    }
+    
+    @Override
+    public Set<String> saveAll(Collection<T> records) {
+        if (records.isEmpty()) {
+            return Collections.emptySet();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try (ConnectionPool.PooledConnection connection = provider.pool().borrow()) {
+                return connection.inTransaction(c -> saveAll(c, records));
+            } catch (SQLException e) {
+                // Another transaction inserted one of the IDs after our delete; once it has
+                // committed, the next try deletes its row and reports the ID as replaced
+                if (attempt < SAVE_ATTEMPTS && isConstraintViolation(e)) {
+                    continue;
+                }
+                Log.error("Error saving to " + table + ": " + e.getMessage());
+                return Collections.emptySet();
+            }
+        }
+    }
+    
+    // SQLSTATE class 23, which a duplicate primary key raises
+    private static boolean isConstraintViolation(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+    
+    // Writes within the caller's transaction, leaving commit or rollback to it; returns the IDs replaced
+    Set<String> saveAll(ConnectionPool.PooledConnection connection, Collection<T> records) throws SQLException {
+        Set<String> replaced = new HashSet<>();
+        if (records.isEmpty()) {
+            return replaced;
+        }
+        PreparedStatement delete = connection.prepare(deleteById);
+        List<String> ids = new ArrayList<>(records.size());
+        for (T record : records) {
+            String id = idOf(record);
+            ids.add(id);
+            delete.setString(1, id);
+            delete.addBatch();
+        }
+        int[] counts = delete.executeBatch();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                replaced.add(ids.get(i));
+            }
+        }
+        
+        PreparedStatement statement = connection.prepare(insert);
+        for (T record : records) {
+            bind(statement, record);
+            statement.addBatch();
+        }
+        statement.executeBatch();
+        return replaced;
+    }
+    
+    @Override
+    public boolean delete(String id) {
+        return !deleteAll(Collections.singletonList(id)).isEmpty();
+    }
+    
+    @Override
+    public Set<String> deleteAll(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<String> batch = new ArrayList<>(ids);
+        try (ConnectionPool.PooledConnection connection = provider.pool().borrow()) {
+            return connection.inTransaction(c -> {
+                PreparedStatement statement = c.prepare(deleteById);
+                for (String id : batch) {
+                    statement.setString(1, id);
+                    statement.addBatch();
+                }
+                int[] counts = statement.executeBatch();
+                Set<String> removed = new LinkedHashSet<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        removed.add(batch.get(i));
+                    }
+                }
+                return removed;
+            });
+        } catch (SQLException e) {
+            Log.error("Error deleting from " + table + ": " + e.getMessage());
+            return Collections.emptySet();
+        }
+    }
+    
+    // Rows for a query with string or date parameters; empty on error
+    List<T> query(String sql, Object... parameters) {
+        List<T> results = new ArrayList<>();
+        try (ConnectionPool.PooledConnection connection = provider.pool().borrow()) {
+            PreparedStatement statement = connection.prepare(sql);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    results.add(read(rows));
+                }
+            }
+        } catch (SQLException e) {
+            Log.error("Error querying " + table + ": " + e.getMessage());
+        }
+        return results;
+    }
+    
+    static String joinList(List<String> values) {
+        return String.join(";", values);
+    }
+    
+    static void splitList(String value, List<String> target) {
+        if (value != null && !value.isEmpty()) {
+            Collections.addAll(target, value.split(";"));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package mentcare.dao.jdbc;
+
+import mentcare.dao.spi.ConsultationRepository;
+import mentcare.dao.spi.PatientRepository;
+import mentcare.dao.spi.PrescriptionRepository;
+import mentcare.dao.spi.StorageProvider;
+import mentcare.dao.spi.UserRepository;
+import mentcare.utils.Log;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+
+/**
+ * Stores each entity in a table of an embedded SQL database, reached through JDBC.
+ * The database is chosen with the mentcare.jdbc.url system property and defaults to an
+ * H2 file database under data/; the driver jar only has to be on the module or class path.
+ * The schema is created on first use and, the first time, the existing CSV files are imported.
+ */
+public class JDBCStorageProvider implements StorageProvider {
+    public static final String NAME = "jdbc";
+    
+    private static final String DEFAULT_URL = "jdbc:h2:./data/mentcare";
+    private static final int DEFAULT_POOL_SIZE = 4;
+    
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS patients ("
+            + "patient_id VARCHAR(64) PRIMARY KEY, nhs_number VARCHAR(64), name VARCHAR(255), "
+            + "address VARCHAR(512), date_of_birth DATE, contact_details VARCHAR(255), "
+            + "risk_level VARCHAR(16), sectioned BOOLEAN, sectioned_date DATE, review_date DATE)",
+        // Added after the first release of this schema
+        "ALTER TABLE patients ADD COLUMN IF NOT EXISTS registered_practice VARCHAR(64)",
+        "CREATE INDEX IF NOT EXISTS idx_patients_nhs_number ON patients (nhs_number)",
+        "CREATE INDEX IF NOT EXISTS idx_patients_practice ON patients (registered_practice)",
+        
+        "CREATE TABLE IF NOT EXISTS consultations ("
+            + "consultation_id VARCHAR(64) PRIMARY KEY, patient_id VARCHAR(64), date_time TIMESTAMP, "
+            + "staff_ids VARCHAR(1024), impressions VARCHAR(4000), diagnoses VARCHAR(1024), "
+            + "referrals VARCHAR(1024), record_updated BOOLEAN)",
+        "CREATE INDEX IF NOT EXISTS idx_consultations_patient_id ON consultations (patient_id)",
+        "CREATE INDEX IF NOT EXISTS idx_consultations_date_time ON consultations (date_time)",
+        
+        "CREATE TABLE IF NOT EXISTS prescriptions ("
+            + "prescription_id VARCHAR(64) PRIMARY KEY, patient_id VARCHAR(64), drug_name VARCHAR(255), "
+            + "dosage VARCHAR(255), frequency VARCHAR(255), start_date DATE, end_date DATE, "
+            + "prescriber_id VARCHAR(64), is_repeat BOOLEAN, comments VARCHAR(4000))",
+        "CREATE INDEX IF NOT EXISTS idx_prescriptions_patient_id ON prescriptions (patient_id)",
+        "CREATE INDEX IF NOT EXISTS idx_prescriptions_prescriber_id ON prescriptions (prescriber_id)",
+        "CREATE INDEX IF NOT EXISTS idx_prescriptions_validity ON prescriptions (start_date, end_date)",
+        
+        "CREATE TABLE IF NOT EXISTS users ("
+            + "user_id VARCHAR(64) PRIMARY KEY, username VARCHAR(255), password VARCHAR(255), "
+            + "role VARCHAR(32), full_name VARCHAR(255), contact_info VARCHAR(255))",
+        "CREATE INDEX IF NOT EXISTS idx_users_username ON users (username)",
+        
+        // One row per completed one-off task, such as the CSV import
+        "CREATE TABLE IF NOT EXISTS mentcare_meta (meta_key VARCHAR(64) PRIMARY KEY, meta_value VARCHAR(255))"
+    };
+    
+    private final JDBCPatientRepository patients = new JDBCPatientRepository(this);
+    private final JDBCConsultationRepository consultations = new JDBCConsultationRepository(this);
+    private final JDBCPrescriptionRepository prescriptions = new JDBCPrescriptionRepository(this);
+    private final JDBCUserRepository users = new JDBCUserRepository(this);
+    
+    private ConnectionPool pool;
+    private boolean initialized;
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public PatientRepository patients() { return patients; }
+    
+    @Override
+    public ConsultationRepository consultations() { return consultations; }
+    
+    @Override
+    public PrescriptionRepository prescriptions() { return prescriptions; }
+    
+    @Override
+    public UserRepository users() { return users; }
+    
+    // Every write is committed as it happens
+    @Override
+    public void checkpoint() {
+    }
+    
+    // Nothing is cached outside the database
+    @Override
+    public void invalidate() {
+    }
+    
+    // Opened on first use, so choosing another provider never touches the database
+    synchronized ConnectionPool pool() {
+        if (pool == null) {
+            pool = new ConnectionPool(
+                System.getProperty("mentcare.jdbc.url", DEFAULT_URL),
+                System.getProperty("mentcare.jdbc.user", "sa"),
+                System.getProperty("mentcare.jdbc.password", ""),
+                Integer.getInteger("mentcare.jdbc.poolSize", DEFAULT_POOL_SIZE));
+        }
+        if (!initialized) {
+            initialize();
+        }
+        return pool;
+    }
+    
+    // Retried on the next access if it fails, e.g. while the database file is locked
+    private void initialize() {
+        try (ConnectionPool.PooledConnection connection = pool.borrow()) {
+            connection.inTransaction(c -> {
+                try (Statement statement = c.getConnection().createStatement()) {
+                    for (String ddl : SCHEMA) {
+                        statement.execute(ddl);
+                    }
+                }
+                return null;
+            });
+            
+            // The import and its marker commit together, so a failed import is retried in full
+            connection.inTransaction(c -> {
+                if (!isDone(c, CSVImporter.TASK)) {
+                    CSVImporter.importAll(c, users, patients, consultations, prescriptions);
+                    markDone(c, CSVImporter.TASK);
+                }
+                return null;
+            });
+            initialized = true;
+        } catch (SQLException e) {
+            Log.error("Error initializing database: " + e.getMessage());
+        }
+    }
+    
+    private static boolean isDone(ConnectionPool.PooledConnection connection, String task) throws SQLException {
+        PreparedStatement statement = connection.prepare("SELECT meta_value FROM mentcare_meta WHERE meta_key = ?");
+        statement.setString(1, task);
+        try (ResultSet rows = statement.executeQuery()) {
+            return rows.next();
+        }
+    }
+    
+    private static void markDone(ConnectionPool.PooledConnection connection, String task) throws SQLException {
+        PreparedStatement statement = connection.prepare("INSERT INTO mentcare_meta (meta_key, meta_value) VALUES (?, ?)");
+        statement.setString(1, task);
+        statement.setString(2, LocalDateTime.now().toString());
+        statement.executeUpdate();
+    }
+}
@@ -0,0 +1,44 @@
+package mentcare.dao.jdbc;
+
+import mentcare.dao.spi.UserRepository;
+import mentcare.models.User;
+import mentcare.utils.Log;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+class JDBCUserRepository extends JDBCRepository<User> implements UserRepository {
+    JDBCUserRepository(JDBCStorageProvider provider) {
+        super(provider, "users", "user_id", "username", "password", "role", "full_name", "contact_info");
+    }
+    
+    @Override
+    void bind(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getUserId());
+        statement.setString(2, user.getUsername());
+        statement.setString(3, user.getPassword());
+        statement.setString(4, user.getRole().name());
+        statement.setString(5, user.getFullName());
+        statement.setString(6, user.getContactInfo());
+    }
+    
+    @Override
+    User read(ResultSet row) throws SQLException {
+        User.UserRole role;
+        try {
+            role = User.UserRole.valueOf(row.getString(4));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            Log.warn("Invalid role in database: '" + row.getString(4) + "'. Using CLINICAL_STAFF as default.");
+            role = User.UserRole.CLINICAL_STAFF;
+        }
+        User user = new User(row.getString(1), row.getString(2), row.getString(3), role, row.getString(5));
+        user.setContactInfo(row.getString(6));
+        return user;
+    }
+    
+    @Override
+    String idOf(User user) {
+        return user.getUserId();
+    }
+}
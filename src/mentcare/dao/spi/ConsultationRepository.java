@@ -0,0 +1,17 @@
+package mentcare.dao.spi;
+
+import mentcare.models.Consultation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface ConsultationRepository extends Repository<Consultation> {
+    List<Consultation> findByPatient(String patientId);
+    
+    // Consultation count per patient ID; patients without consultations are absent
+    Map<String, Integer> countByPatient();
+    
+    // Inclusive range, oldest first; a null bound is open
+    List<Consultation> findBetween(LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,7 @@
+package mentcare.dao.spi;
+
+import mentcare.models.Patient;
+
+public interface PatientRepository extends Repository<Patient> {
+    Patient findByNationalHealthNumber(String nationalHealthNumber);
+}
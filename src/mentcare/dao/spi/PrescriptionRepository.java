@@ -0,0 +1,14 @@
+package mentcare.dao.spi;
+
+import mentcare.models.Prescription;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface PrescriptionRepository extends Repository<Prescription> {
+    List<Prescription> findByPatient(String patientId);
+    
+    // Prescriptions valid on at least one day of the inclusive range, by start date;
+    // a prescription without an end date is ongoing
+    List<Prescription> findActiveBetween(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,37 @@
+package mentcare.dao.spi;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Storage operations shared by every entity repository.
+ * Records are identified by their string ID; saving a record with an existing ID replaces it.
+ * Writes report which records they replaced or removed, decided as part of the write, so two
+ * concurrent writers never both see the same record as new or as theirs to delete.
+ */
+public interface Repository<T> {
+    List<T> findAll();
+    
+    // Lazily evaluated where the backend allows it; close the stream when done
+    Stream<T> stream();
+    
+    T findById(String id);
+    
+    // True if the record replaced one with the same ID
+    boolean save(T record);
+    
+    // Applies the whole batch with a single durable write; returns the IDs of the records replaced
+    Set<String> saveAll(Collection<T> records);
+    
+    // True if a record with the ID was removed
+    boolean delete(String id);
+    
+    // IDs of the records removed, each once
+    Set<String> deleteAll(Collection<String> ids);
+    
+    // Reads the backing store ahead of first use; safe to call from any thread
+    default void load() {
+    }
+}
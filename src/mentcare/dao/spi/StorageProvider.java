@@ -0,0 +1,26 @@
+package mentcare.dao.spi;
+
+/**
+ * A storage backend for the DAO layer, discovered through ServiceLoader.
+ * Implementations are listed with "provides" in module-info.java and selected by name
+ * with the mentcare.storage system property. Every provider on the module path is
+ * instantiated during lookup, so constructors must not open files or connections.
+ */
+public interface StorageProvider {
+    // Name used to select this provider, e.g. "csv"
+    String name();
+    
+    PatientRepository patients();
+    
+    ConsultationRepository consultations();
+    
+    PrescriptionRepository prescriptions();
+    
+    UserRepository users();
+    
+    // Make every pending change durable in the primary store, e.g. on shutdown
+    void checkpoint();
+    
+    // Drop cached state so the next access re-reads the backing store
+    void invalidate();
+}
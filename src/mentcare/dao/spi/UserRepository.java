@@ -0,0 +1,6 @@
+package mentcare.dao.spi;
+
+import mentcare.models.User;
+
+public interface UserRepository extends Repository<User> {
+}
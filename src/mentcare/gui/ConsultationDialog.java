@@ -20,7 +20,6 @@ import java.util.List;
 public class ConsultationDialog extends JDialog {
     private Consultation consultation;
     private User currentUser;
-    private ConsultationPanel parentPanel;
     private ConsultationDAO consultationDAO;
     private PatientDAO patientDAO;
     
@@ -35,13 +34,12 @@ public class ConsultationDialog extends JDialog {
     private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
     
-    public ConsultationDialog(Consultation consultation, User user, ConsultationPanel parentPanel) {
+    public ConsultationDialog(Consultation consultation, User user) {
         super((Frame) null, 
               consultation == null ? "Add Consultation" : "Edit Consultation", 
               true);
         this.consultation = consultation;
         this.currentUser = user;
-        this.parentPanel = parentPanel;
         this.consultationDAO = new ConsultationDAO();
         this.patientDAO = new PatientDAO();
         
@@ -215,8 +213,8 @@ public class ConsultationDialog extends JDialog {
                     consultationToSave = new Consultation(consultationId, 
                         selectedPatient.getPatientId(), dateTime);
                 } else {
-                    // Existing consultation
-                    consultationToSave = consultation;
+                    // Existing consultation; edited as a copy so a failed save leaves it untouched
+                    consultationToSave = new Consultation(consultation);
                 }
                 
                 // Update consultation details
@@ -252,18 +250,15 @@ public class ConsultationDialog extends JDialog {
                     }
                 }
                 
-                // Save consultation
+                // Save consultation; open panels update its row from the change event
                 consultationDAO.saveConsultation(consultationToSave);
                 
-                // Refresh parent panel
-                parentPanel.refreshConsultationData();
-                
                 JOptionPane.showMessageDialog(ConsultationDialog.this,
                     "Consultation saved successfully!", "Success", 
                     JOptionPane.INFORMATION_MESSAGE);
                 
                 dispose();
-                
+            
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(ConsultationDialog.this,
                     "Error saving consultation: " + ex.getMessage(),
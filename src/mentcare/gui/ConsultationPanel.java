@@ -5,14 +5,19 @@ import mentcare.models.Patient;
 import mentcare.models.Consultation;
 import mentcare.dao.PatientDAO;
 import mentcare.dao.ConsultationDAO;
+import mentcare.dao.DataChange;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class ConsultationPanel extends JPanel {
     private User currentUser;
@@ -21,8 +26,14 @@ public class ConsultationPanel extends JPanel {
     
     private JTable consultationTable;
     private DefaultTableModel tableModel;
+    private RowIndex rowIndex;
     private JButton addButton, editButton, deleteButton, viewButton;
     private JComboBox<Patient> patientComboBox;
+    private JComboBox<String> dateRangeComboBox;
+    private LocalDate customFrom, customTo;
+    // Saves and deletes made anywhere patch the affected row
+    private final Consumer<DataChange<Consultation>> changeListener =
+        change -> TableRows.onEventThread(() -> applyChange(change));
     
     public ConsultationPanel(User user) {
         this.currentUser = user;
@@ -32,6 +43,18 @@ public class ConsultationPanel extends JPanel {
         loadConsultationData();
     }
     
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        consultationDAO.addChangeListener(changeListener);
+    }
+    
+    @Override
+    public void removeNotify() {
+        consultationDAO.removeChangeListener(changeListener);
+        super.removeNotify();
+    }
+    
     private void initializeUI() {
         setLayout(new BorderLayout());
         
@@ -53,9 +76,16 @@ public class ConsultationPanel extends JPanel {
         patientComboBox.addActionListener(new FilterHandler());
         filterPanel.add(patientComboBox);
         
+        filterPanel.add(new JLabel("Date Range:"));
+        dateRangeComboBox = new JComboBox<>(
+            new String[]{"All Dates", "Today", "Last 7 Days", "Last 30 Days", "Custom Range..."});
+        dateRangeComboBox.addActionListener(new DateRangeHandler());
+        filterPanel.add(dateRangeComboBox);
+        
         JButton clearFilterButton = new JButton("Clear Filter");
         clearFilterButton.addActionListener(e -> {
             patientComboBox.setSelectedIndex(0);
+            dateRangeComboBox.setSelectedIndex(0);
             loadConsultationData();
         });
         filterPanel.add(clearFilterButton);
@@ -70,6 +100,7 @@ public class ConsultationPanel extends JPanel {
                 return false;
             }
         };
+        rowIndex = new RowIndex(tableModel);
         
         consultationTable = new JTable(tableModel);
         consultationTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -113,30 +144,118 @@ public class ConsultationPanel extends JPanel {
     private void loadConsultationData() {
         tableModel.setRowCount(0);
         
-        List<Consultation> consultations = consultationDAO.getAllConsultations();
         Patient selectedPatient = (Patient) patientComboBox.getSelectedItem();
+        boolean allPatients = selectedPatient == null || selectedPatient.getPatientId().equals("ALL");
+        
+        // A date range is read from the time index, so only the matching consultations are loaded
+        List<Consultation> consultations;
+        LocalDate[] range = getSelectedDateRange();
+        if (range == null && !allPatients) {
+            consultations = consultationDAO.getConsultationsByPatient(selectedPatient.getPatientId());
+            consultations.sort(Comparator.comparing(Consultation::getDateTime));
+        } else {
+            consultations = consultationDAO.findBetween(
+                range != null ? range[0].atStartOfDay() : null,
+                range != null ? range[1].atTime(LocalTime.MAX) : null);
+        }
         
         for (Consultation consultation : consultations) {
             // Apply filter if a specific patient is selected
-            if (selectedPatient != null && !selectedPatient.getPatientId().equals("ALL") 
-                && !consultation.getPatientId().equals(selectedPatient.getPatientId())) {
+            if (!allPatients && !consultation.getPatientId().equals(selectedPatient.getPatientId())) {
                 continue;
             }
-            
-            // Get patient name for display
-            Patient patient = patientDAO.findPatientById(consultation.getPatientId());
-            String patientName = patient != null ? patient.getName() : "Unknown Patient";
-            
-            Object[] rowData = {
-                consultation.getConsultationId(),
-                patientName,
-                consultation.getDateTime().toLocalDate().toString(),
-                consultation.getDateTime().toLocalTime().toString(),
-                String.join(", ", consultation.getStaffIds()),
-                String.join(", ", consultation.getDiagnoses()),
-                consultation.isRecordUpdated() ? "Yes" : "No"
-            };
-            tableModel.addRow(rowData);
+            tableModel.addRow(toRow(consultation));
+        }
+    }
+    
+    private Object[] toRow(Consultation consultation) {
+        // Get patient name for display
+        Patient patient = patientDAO.findPatientById(consultation.getPatientId());
+        String patientName = patient != null ? patient.getName() : "Unknown Patient";
+        
+        return new Object[]{
+            consultation.getConsultationId(),
+            patientName,
+            consultation.getDateTime().toLocalDate().toString(),
+            consultation.getDateTime().toLocalTime().toString(),
+            String.join(", ", consultation.getStaffIds()),
+            String.join(", ", consultation.getDiagnoses()),
+            consultation.isRecordUpdated() ? "Yes" : "No"
+        };
+    }
+    
+    // Updates, inserts or removes the one row the change affects, keeping rows in date order
+    private void applyChange(DataChange<Consultation> change) {
+        int row = rowIndex.find(change.getId());
+        Consultation consultation = change.getRecord();
+        if (change.getKind() == DataChange.Kind.DELETED || !matchesFilter(consultation)) {
+            if (row >= 0) {
+                tableModel.removeRow(row);
+            }
+            return;
+        }
+        
+        LocalDateTime dateTime = consultation.getDateTime();
+        if (row >= 0 && (row == 0 || !rowDateTime(row - 1).isAfter(dateTime))
+                && (row == tableModel.getRowCount() - 1 || !rowDateTime(row + 1).isBefore(dateTime))) {
+            TableRows.replace(tableModel, row, toRow(consultation));
+            return;
+        }
+        // New, or moved in time
+        if (row >= 0) {
+            tableModel.removeRow(row);
+        }
+        tableModel.insertRow(insertionRow(dateTime), toRow(consultation));
+    }
+    
+    private boolean matchesFilter(Consultation consultation) {
+        if (consultation.getDateTime() == null) {
+            return false;
+        }
+        Patient selectedPatient = (Patient) patientComboBox.getSelectedItem();
+        if (selectedPatient != null && !selectedPatient.getPatientId().equals("ALL")
+                && !consultation.getPatientId().equals(selectedPatient.getPatientId())) {
+            return false;
+        }
+        LocalDate[] range = getSelectedDateRange();
+        LocalDate date = consultation.getDateTime().toLocalDate();
+        return range == null || !date.isBefore(range[0]) && !date.isAfter(range[1]);
+    }
+    
+    private LocalDateTime rowDateTime(int row) {
+        return LocalDateTime.of(LocalDate.parse((String) tableModel.getValueAt(row, 2)),
+            LocalTime.parse((String) tableModel.getValueAt(row, 3)));
+    }
+    
+    // First row later than the date and time, found by binary search
+    private int insertionRow(LocalDateTime dateTime) {
+        int low = 0;
+        int high = tableModel.getRowCount();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (rowDateTime(middle).isAfter(dateTime)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+    
+    // Inclusive {from, to} dates for the selected range, or null for all dates
+    private LocalDate[] getSelectedDateRange() {
+        LocalDate today = LocalDate.now();
+        switch ((String) dateRangeComboBox.getSelectedItem()) {
+            case "Today":
+                return new LocalDate[]{today, today};
+            case "Last 7 Days":
+                return new LocalDate[]{today.minusDays(6), today};
+            case "Last 30 Days":
+                return new LocalDate[]{today.minusDays(29), today};
+            case "Custom Range...":
+                return customFrom != null ? new LocalDate[]{customFrom, customTo} : null;
+            default:
+                return null;
         }
     }
     
@@ -147,11 +266,42 @@ public class ConsultationPanel extends JPanel {
         }
     }
     
+    private class DateRangeHandler implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            if ("Custom Range...".equals(dateRangeComboBox.getSelectedItem())) {
+                LocalDate today = LocalDate.now();
+                String fromStr = JOptionPane.showInputDialog(ConsultationPanel.this,
+                    "Enter start date (YYYY-MM-DD):",
+                    customFrom != null ? customFrom.toString() : today.minusDays(30).toString());
+                String toStr = fromStr != null ? JOptionPane.showInputDialog(ConsultationPanel.this,
+                    "Enter end date (YYYY-MM-DD):",
+                    customTo != null ? customTo.toString() : today.toString()) : null;
+                
+                if (fromStr == null || toStr == null) {
+                    dateRangeComboBox.setSelectedIndex(0);
+                    return;
+                }
+                try {
+                    customFrom = LocalDate.parse(fromStr.trim());
+                    customTo = LocalDate.parse(toStr.trim());
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(ConsultationPanel.this,
+                        "Invalid date format. Please use YYYY-MM-DD.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                    dateRangeComboBox.setSelectedIndex(0);
+                    return;
+                }
+            }
+            loadConsultationData();
+        }
+    }
+    
     private class AddConsultationHandler implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
             // Open add consultation dialog
-            new ConsultationDialog(null, currentUser, ConsultationPanel.this).setVisible(true);
+            new ConsultationDialog(null, currentUser).setVisible(true);
         }
     }
     
@@ -170,7 +320,7 @@ public class ConsultationPanel extends JPanel {
             Consultation consultation = consultationDAO.getConsultationById(consultationId);
             
             if (consultation != null) {
-                new ConsultationDialog(consultation, currentUser, ConsultationPanel.this).setVisible(true);
+                new ConsultationDialog(consultation, currentUser).setVisible(true);
             }
         }
     }
@@ -216,7 +366,6 @@ public class ConsultationPanel extends JPanel {
             
             if (confirm == JOptionPane.YES_OPTION) {
                 consultationDAO.deleteConsultation(consultationId);
-                loadConsultationData();
                 JOptionPane.showMessageDialog(ConsultationPanel.this,
                     "Consultation deleted successfully!", 
                     "Success", JOptionPane.INFORMATION_MESSAGE);
@@ -259,6 +408,7 @@ public class ConsultationPanel extends JPanel {
             "Consultation Details", JOptionPane.INFORMATION_MESSAGE);
     }
     
+    // Full reload, for data changed behind the DAOs' back; DAO saves patch rows as they happen
     public void refreshConsultationData() {
         loadConsultationData();
     }
@@ -9,6 +9,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -55,7 +56,7 @@ public class MHAPanel extends JPanel {
         };
         
         mhaTable = new JTable(tableModel);
-        mhaTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        mhaTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         JScrollPane scrollPane = new JScrollPane(mhaTable);
         add(scrollPane, BorderLayout.CENTER);
         
@@ -107,27 +108,36 @@ public class MHAPanel extends JPanel {
     private class ScheduleReviewHandler implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            int selectedRow = mhaTable.getSelectedRow();
-            if (selectedRow == -1) {
+            int[] selectedRows = mhaTable.getSelectedRows();
+            if (selectedRows.length == 0) {
                 JOptionPane.showMessageDialog(MHAPanel.this,
                     "Please select a patient to schedule a review for.",
                     "No Selection", JOptionPane.WARNING_MESSAGE);
                 return;
             }
             
-            String patientId = (String) tableModel.getValueAt(selectedRow, 0);
-            Patient patient = patientDAO.findPatientById(patientId);
+            // Several patients can be rescheduled to the same date at once
+            List<Patient> patients = new ArrayList<>();
+            for (int selectedRow : selectedRows) {
+                Patient patient = patientDAO.findPatientById((String) tableModel.getValueAt(selectedRow, 0));
+                if (patient != null) {
+                    patients.add(patient);
+                }
+            }
             
-            if (patient != null) {
+            if (!patients.isEmpty()) {
+                Patient first = patients.get(0);
                 String reviewDateStr = JOptionPane.showInputDialog(MHAPanel.this,
-                    "Enter review date for " + patient.getName() + " (YYYY-MM-DD):",
-                    patient.getReviewDate() != null ? patient.getReviewDate().toString() : LocalDate.now().plusDays(30).toString());
+                    "Enter review date for " + (patients.size() == 1 ? first.getName() : patients.size() + " patients") + " (YYYY-MM-DD):",
+                    first.getReviewDate() != null ? first.getReviewDate().toString() : LocalDate.now().plusDays(30).toString());
                 
                 if (reviewDateStr != null && !reviewDateStr.trim().isEmpty()) {
                     try {
                         LocalDate reviewDate = LocalDate.parse(reviewDateStr.trim());
-                        patient.setReviewDate(reviewDate);
-                        patientDAO.savePatient(patient);
+                        for (Patient patient : patients) {
+                            patient.setReviewDate(reviewDate);
+                        }
+                        patientDAO.saveAll(patients);
                         loadMHAData();
                         
                         JOptionPane.showMessageDialog(MHAPanel.this,
@@ -13,21 +13,20 @@ import java.time.format.DateTimeParseException;
 
 public class PatientEditDialog extends JDialog {
     private Patient patient;
-    private PatientManagementPanel parentPanel;
     private PatientDAO patientDAO;
     
     private JTextField nameField;
     private JTextField addressField;
     private JTextField dobField;
     private JTextField contactField;
+    private JTextField practiceField;
     private JComboBox<Patient.RiskLevel> riskComboBox;
     private JCheckBox sectionedCheckBox;
     private JTextField reviewDateField;
     
-    public PatientEditDialog(Patient patient, PatientManagementPanel parentPanel) {
+    public PatientEditDialog(Patient patient) {
         super((Frame) null, "Edit Patient", true);
         this.patient = patient;
-        this.parentPanel = parentPanel;
         this.patientDAO = new PatientDAO();
         
         initializeUI();
@@ -36,12 +35,12 @@ public class PatientEditDialog extends JDialog {
     
     private void initializeUI() {
         setLayout(new BorderLayout());
-        setSize(500, 400);
+        setSize(500, 440);
         setLocationRelativeTo(null);
         setResizable(false);
         
         // Form panel
-        JPanel formPanel = new JPanel(new GridLayout(7, 2, 10, 10));
+        JPanel formPanel = new JPanel(new GridLayout(8, 2, 10, 10));
         formPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         
         // Patient ID (read-only)
@@ -70,6 +69,11 @@ public class PatientEditDialog extends JDialog {
         contactField = new JTextField();
         formPanel.add(contactField);
         
+        // Registered Practice
+        formPanel.add(new JLabel("Registered Practice:"));
+        practiceField = new JTextField();
+        formPanel.add(practiceField);
+        
         // Risk Assessment
         formPanel.add(new JLabel("Risk Assessment:"));
         riskComboBox = new JComboBox<>(Patient.RiskLevel.values());
@@ -107,6 +111,7 @@ public class PatientEditDialog extends JDialog {
         addressField.setText(patient.getAddress());
         dobField.setText(patient.getDateOfBirth().toString());
         contactField.setText(patient.getContactDetails());
+        practiceField.setText(patient.getRegisteredPractice() != null ? patient.getRegisteredPractice() : "");
         riskComboBox.setSelectedItem(patient.getRiskAssessment());
         sectionedCheckBox.setSelected(patient.isSectioned());
         
@@ -128,29 +133,31 @@ public class PatientEditDialog extends JDialog {
                 LocalDate dob = LocalDate.parse(dobField.getText().trim());
                 // Note: In real implementation, you'd need to handle date changes carefully
                 
-                patient.setRiskAssessment((Patient.RiskLevel) riskComboBox.getSelectedItem());
-                patient.setSectioned(sectionedCheckBox.isSelected());
+                // Edit a copy, so a field that fails to parse leaves the shown patient untouched
+                Patient edited = new Patient(patient);
+                edited.setRiskAssessment((Patient.RiskLevel) riskComboBox.getSelectedItem());
+                edited.setSectioned(sectionedCheckBox.isSelected());
+                
+                String practiceText = practiceField.getText().trim();
+                edited.setRegisteredPractice(practiceText.isEmpty() ? null : practiceText);
                 
                 // Parse review date if provided
                 String reviewDateText = reviewDateField.getText().trim();
                 if (!reviewDateText.isEmpty()) {
                     LocalDate reviewDate = LocalDate.parse(reviewDateText);
-                    patient.setReviewDate(reviewDate);
+                    edited.setReviewDate(reviewDate);
                 } else {
-                    patient.setReviewDate(null);
+                    edited.setReviewDate(null);
                 }
                 
-                // Save to CSV
-                patientDAO.savePatient(patient);
-                
-                // Refresh parent panel
-                parentPanel.refreshPatientData();
+                // Save to CSV; open panels update its row from the change event
+                patientDAO.savePatient(edited);
                 
                 JOptionPane.showMessageDialog(PatientEditDialog.this,
                     "Patient updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 
                 dispose();
-                
+            
             } catch (DateTimeParseException ex) {
                 JOptionPane.showMessageDialog(PatientEditDialog.this,
                     "Invalid date format. Please use YYYY-MM-DD format.",
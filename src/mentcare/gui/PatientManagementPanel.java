@@ -2,6 +2,7 @@ package mentcare.gui;
 
 import mentcare.models.User;
 import mentcare.models.Patient;
+import mentcare.dao.DataChange;
 import mentcare.dao.PatientDAO;
 
 import javax.swing.*;
@@ -10,13 +11,18 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class PatientManagementPanel extends JPanel {
     private User currentUser;
     private PatientDAO patientDAO;
     private JTable patientTable;
     private DefaultTableModel tableModel;
+    private RowIndex rowIndex;
     private JButton addButton, editButton, viewButton;
+    // Saves and deletes made anywhere patch the affected row
+    private final Consumer<DataChange<Patient>> changeListener =
+        change -> TableRows.onEventThread(() -> applyChange(change));
     
     public PatientManagementPanel(User user) {
         this.currentUser = user;
@@ -25,6 +31,18 @@ public class PatientManagementPanel extends JPanel {
         loadPatientData();
     }
     
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        patientDAO.addChangeListener(changeListener);
+    }
+    
+    @Override
+    public void removeNotify() {
+        patientDAO.removeChangeListener(changeListener);
+        super.removeNotify();
+    }
+    
     private void initializeUI() {
         setLayout(new BorderLayout());
         
@@ -42,6 +60,7 @@ public class PatientManagementPanel extends JPanel {
                 return false; // Make table non-editable
             }
         };
+        rowIndex = new RowIndex(tableModel);
         
         patientTable = new JTable(tableModel);
         patientTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -78,15 +97,32 @@ public class PatientManagementPanel extends JPanel {
         
         List<Patient> patients = patientDAO.getAllPatients();
         for (Patient patient : patients) {
-            Object[] rowData = {
-                patient.getPatientId(),
-                patient.getName(),
-                patient.getAge(),
-                patient.getRiskAssessment(),
-                patient.isSectioned() ? "Yes" : "No",
-                patient.getReviewDate() != null ? patient.getReviewDate().toString() : "N/A"
-            };
-            tableModel.addRow(rowData);
+            tableModel.addRow(toRow(patient));
+        }
+    }
+    
+    private static Object[] toRow(Patient patient) {
+        return new Object[]{
+            patient.getPatientId(),
+            patient.getName(),
+            patient.getAge(),
+            patient.getRiskAssessment(),
+            patient.isSectioned() ? "Yes" : "No",
+            patient.getReviewDate() != null ? patient.getReviewDate().toString() : "N/A"
+        };
+    }
+    
+    // Updates or removes the patient's row in place; new patients go last, as in the file
+    private void applyChange(DataChange<Patient> change) {
+        int row = rowIndex.find(change.getId());
+        if (change.getKind() == DataChange.Kind.DELETED) {
+            if (row >= 0) {
+                tableModel.removeRow(row);
+            }
+        } else if (row >= 0) {
+            TableRows.replace(tableModel, row, toRow(change.getRecord()));
+        } else {
+            tableModel.addRow(toRow(change.getRecord()));
         }
     }
     
@@ -114,7 +150,7 @@ public class PatientManagementPanel extends JPanel {
             
             if (patient != null) {
                 // Open edit dialog
-                new PatientEditDialog(patient, PatientManagementPanel.this).setVisible(true);
+                new PatientEditDialog(patient).setVisible(true);
             }
         }
     }
@@ -139,6 +175,7 @@ public class PatientManagementPanel extends JPanel {
         }
     }
     
+    // Full reload, for data changed behind the DAOs' back; DAO saves patch rows as they happen
     public void refreshPatientData() {
         loadPatientData();
     }
@@ -200,8 +200,8 @@ public class PrescriptionDialog extends JDialog {
                         currentUser.getUserId()
                     );
                 } else {
-                    // Existing prescription
-                    prescriptionToSave = prescription;
+                    // Existing prescription; edited as a copy so a failed save leaves it untouched
+                    prescriptionToSave = new Prescription(prescription);
                    // prescriptionToSave.setDrugName(drugNameField.getText().trim());
                     //prescriptionToSave.setDosage(dosageField.getText().trim());
                     //prescriptionToSave.setFrequency(frequencyField.getText().trim());
@@ -224,7 +224,7 @@ public class PrescriptionDialog extends JDialog {
                     JOptionPane.INFORMATION_MESSAGE);
                 
                 dispose();
-                
+            
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(PrescriptionDialog.this,
                     "Error saving prescription: " + ex.getMessage(),
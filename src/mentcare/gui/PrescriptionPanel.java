@@ -11,6 +11,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 public class PrescriptionPanel extends JPanel {
@@ -22,6 +23,8 @@ public class PrescriptionPanel extends JPanel {
     private DefaultTableModel tableModel;
     private JButton addButton, editButton, deleteButton, viewButton;
     private JComboBox<Patient> patientComboBox;
+    private JComboBox<String> validityComboBox;
+    private LocalDate activeOnDate;
     
     public PrescriptionPanel(User user) {
         this.currentUser = user;
@@ -52,9 +55,16 @@ public class PrescriptionPanel extends JPanel {
         patientComboBox.addActionListener(new FilterHandler());
         filterPanel.add(patientComboBox);
         
+        filterPanel.add(new JLabel("Show:"));
+        validityComboBox = new JComboBox<>(
+            new String[]{"All Prescriptions", "Active Today", "Expiring This Week", "Active on Date..."});
+        validityComboBox.addActionListener(new ValidityFilterHandler());
+        filterPanel.add(validityComboBox);
+        
         JButton clearFilterButton = new JButton("Clear Filter");
         clearFilterButton.addActionListener(e -> {
             patientComboBox.setSelectedIndex(0);
+            validityComboBox.setSelectedIndex(0);
             loadPrescriptionData();
         });
         filterPanel.add(clearFilterButton);
@@ -71,7 +81,7 @@ public class PrescriptionPanel extends JPanel {
         };
         
         prescriptionTable = new JTable(tableModel);
-        prescriptionTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        prescriptionTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         JScrollPane scrollPane = new JScrollPane(prescriptionTable);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
         
@@ -128,7 +138,7 @@ public class PrescriptionPanel extends JPanel {
     private void loadPrescriptionData() {
         tableModel.setRowCount(0);
         
-        List<Prescription> prescriptions = prescriptionDAO.getAllPrescriptions();
+        List<Prescription> prescriptions = getPrescriptionsForValidityFilter();
         Object selectedItem = patientComboBox.getSelectedItem();
         
         for (Prescription prescription : prescriptions) {
@@ -158,6 +168,25 @@ public class PrescriptionPanel extends JPanel {
         }
     }
     
+    // Date filters are answered by the validity index rather than by scanning every prescription
+    private List<Prescription> getPrescriptionsForValidityFilter() {
+        LocalDate today = LocalDate.now();
+        switch ((String) validityComboBox.getSelectedItem()) {
+            case "Active Today":
+                return prescriptionDAO.findActiveOn(today);
+            case "Expiring This Week":
+                LocalDate weekEnd = today.plusDays(6);
+                return prescriptionDAO.findActiveBetween(today, weekEnd).stream()
+                    .filter(p -> p.getEndDate() != null && !p.getEndDate().isAfter(weekEnd))
+                    .toList();
+            case "Active on Date...":
+                return activeOnDate != null ? prescriptionDAO.findActiveOn(activeOnDate)
+                    : prescriptionDAO.getAllPrescriptions();
+            default:
+                return prescriptionDAO.getAllPrescriptions();
+        }
+    }
+    
     private class FilterHandler implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
@@ -165,6 +194,31 @@ public class PrescriptionPanel extends JPanel {
         }
     }
     
+    private class ValidityFilterHandler implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            if ("Active on Date...".equals(validityComboBox.getSelectedItem())) {
+                String dateStr = JOptionPane.showInputDialog(PrescriptionPanel.this,
+                    "Enter date (YYYY-MM-DD):",
+                    activeOnDate != null ? activeOnDate.toString() : LocalDate.now().toString());
+                if (dateStr == null) {
+                    validityComboBox.setSelectedIndex(0);
+                    return;
+                }
+                try {
+                    activeOnDate = LocalDate.parse(dateStr.trim());
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(PrescriptionPanel.this,
+                        "Invalid date format. Please use YYYY-MM-DD.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                    validityComboBox.setSelectedIndex(0);
+                    return;
+                }
+            }
+            loadPrescriptionData();
+        }
+    }
+    
     private class AddPrescriptionHandler implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
@@ -218,28 +272,37 @@ public class PrescriptionPanel extends JPanel {
     private class DeletePrescriptionHandler implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            int selectedRow = prescriptionTable.getSelectedRow();
-            if (selectedRow == -1) {
+            int[] selectedRows = prescriptionTable.getSelectedRows();
+            if (selectedRows.length == 0) {
                 JOptionPane.showMessageDialog(PrescriptionPanel.this,
                     "Please select a prescription to delete", 
                     "No Selection", JOptionPane.WARNING_MESSAGE);
                 return;
             }
             
-            String prescriptionId = (String) tableModel.getValueAt(selectedRow, 0);
-            String patientName = (String) tableModel.getValueAt(selectedRow, 1);
-            String drugName = (String) tableModel.getValueAt(selectedRow, 2);
+            List<String> prescriptionIds = new ArrayList<>();
+            for (int selectedRow : selectedRows) {
+                prescriptionIds.add((String) tableModel.getValueAt(selectedRow, 0));
+            }
+            
+            String target;
+            if (selectedRows.length == 1) {
+                String patientName = (String) tableModel.getValueAt(selectedRows[0], 1);
+                String drugName = (String) tableModel.getValueAt(selectedRows[0], 2);
+                target = "the prescription for " + patientName + " - " + drugName;
+            } else {
+                target = selectedRows.length + " prescriptions";
+            }
             
             int confirm = JOptionPane.showConfirmDialog(PrescriptionPanel.this,
-                "Are you sure you want to delete the prescription for " + 
-                patientName + " - " + drugName + "?",
+                "Are you sure you want to delete " + target + "?",
                 "Confirm Delete", JOptionPane.YES_NO_OPTION);
             
             if (confirm == JOptionPane.YES_OPTION) {
-                prescriptionDAO.deletePrescription(prescriptionId);
+                prescriptionDAO.deleteAll(prescriptionIds);
                 loadPrescriptionData();
                 JOptionPane.showMessageDialog(PrescriptionPanel.this,
-                    "Prescription deleted successfully!", 
+                    (selectedRows.length == 1 ? "Prescription" : "Prescriptions") + " deleted successfully!", 
                     "Success", JOptionPane.INFORMATION_MESSAGE);
             }
         }
@@ -248,21 +311,27 @@ public class PrescriptionPanel extends JPanel {
     private class RepeatPrescriptionHandler implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            int selectedRow = prescriptionTable.getSelectedRow();
-            if (selectedRow == -1) {
+            int[] selectedRows = prescriptionTable.getSelectedRows();
+            if (selectedRows.length == 0) {
                 JOptionPane.showMessageDialog(PrescriptionPanel.this,
                     "Please select a prescription to generate a repeat", 
                     "No Selection", JOptionPane.WARNING_MESSAGE);
                 return;
             }
             
-            String prescriptionId = (String) tableModel.getValueAt(selectedRow, 0);
-            Prescription originalPrescription = prescriptionDAO.getPrescriptionById(prescriptionId);
-            
-            if (originalPrescription != null) {
+            // Repeats for every selected prescription are saved together
+            List<Prescription> repeats = new ArrayList<>();
+            long idBase = System.currentTimeMillis();
+            for (int selectedRow : selectedRows) {
+                String prescriptionId = (String) tableModel.getValueAt(selectedRow, 0);
+                Prescription originalPrescription = prescriptionDAO.getPrescriptionById(prescriptionId);
+                if (originalPrescription == null) {
+                    continue;
+                }
+                
                 // Create a new prescription as a repeat
                 Prescription repeatPrescription = new Prescription(
-                    "PRES" + System.currentTimeMillis(),
+                    "PRES" + (idBase + repeats.size()),
                     originalPrescription.getPatientId(),
                     originalPrescription.getDrugName(),
                     originalPrescription.getDosage(),
@@ -277,13 +346,21 @@ public class PrescriptionPanel extends JPanel {
                 
                 // Set end date (typically 2 weeks for restricted meds)
                 repeatPrescription.setEndDate(LocalDate.now().plusWeeks(2));
-                
-                prescriptionDAO.savePrescription(repeatPrescription);
+                repeats.add(repeatPrescription);
+            }
+            
+            if (!repeats.isEmpty()) {
+                prescriptionDAO.saveAll(repeats);
                 loadPrescriptionData();
                 
+                StringBuilder ids = new StringBuilder();
+                for (Prescription repeat : repeats) {
+                    ids.append(ids.length() > 0 ? ", " : "").append(repeat.getPrescriptionId());
+                }
                 JOptionPane.showMessageDialog(PrescriptionPanel.this,
-                    "Repeat prescription generated successfully!\n" +
-                    "New prescription ID: " + repeatPrescription.getPrescriptionId(),
+                    (repeats.size() == 1 ? "Repeat prescription" : repeats.size() + " repeat prescriptions")
+                        + " generated successfully!\n" +
+                    "New prescription ID: " + ids,
                     "Repeat Generated", JOptionPane.INFORMATION_MESSAGE);
             }
         }
@@ -1,6 +1,7 @@
 package mentcare.gui;
 
 import mentcare.models.User;
+import mentcare.models.Patient;
 import mentcare.dao.PatientDAO;
 import mentcare.dao.ConsultationDAO;
 import javax.swing.*;
@@ -8,7 +9,10 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public class ReportPanel extends JPanel {
     private User currentUser;
@@ -92,32 +96,39 @@ public class ReportPanel extends JPanel {
         report.append("PATIENT STATISTICS REPORT\n");
         report.append("=========================\n\n");
         
-        var patients = patientDAO.getAllPatients();
+        // Single pass over the patients, so the report runs in constant memory
+        long total = 0;
+        long sectioned = 0;
+        long ageSum = 0;
+        long[] riskCounts = new long[Patient.RiskLevel.values().length];
+        try (Stream<Patient> patients = patientDAO.streamPatients()) {
+            Iterator<Patient> iterator = patients.iterator();
+            while (iterator.hasNext()) {
+                Patient patient = iterator.next();
+                total++;
+                riskCounts[patient.getRiskAssessment().ordinal()]++;
+                if (patient.isSectioned()) {
+                    sectioned++;
+                }
+                ageSum += patient.getAge();
+            }
+        }
         
-        report.append("Total Patients: ").append(patients.size()).append("\n\n");
+        report.append("Total Patients: ").append(total).append("\n\n");
         
         // Risk level breakdown
-        long lowRisk = patients.stream().filter(p -> p.getRiskAssessment() == mentcare.models.Patient.RiskLevel.LOW).count();
-        long mediumRisk = patients.stream().filter(p -> p.getRiskAssessment() == mentcare.models.Patient.RiskLevel.MEDIUM).count();
-        long highRisk = patients.stream().filter(p -> p.getRiskAssessment() == mentcare.models.Patient.RiskLevel.HIGH).count();
-        long criticalRisk = patients.stream().filter(p -> p.getRiskAssessment() == mentcare.models.Patient.RiskLevel.CRITICAL).count();
-        
         report.append("Risk Level Breakdown:\n");
-        report.append("  LOW: ").append(lowRisk).append(" patients\n");
-        report.append("  MEDIUM: ").append(mediumRisk).append(" patients\n");
-        report.append("  HIGH: ").append(highRisk).append(" patients\n");
-        report.append("  CRITICAL: ").append(criticalRisk).append(" patients\n\n");
+        for (Patient.RiskLevel level : Patient.RiskLevel.values()) {
+            report.append("  ").append(level).append(": ").append(riskCounts[level.ordinal()]).append(" patients\n");
+        }
+        report.append("\n");
         
         // Sectioned patients
-        long sectioned = patients.stream().filter(p -> p.isSectioned()).count();
         report.append("Sectioned Patients: ").append(sectioned).append("\n");
-        report.append("Non-Sectioned Patients: ").append(patients.size() - sectioned).append("\n\n");
+        report.append("Non-Sectioned Patients: ").append(total - sectioned).append("\n\n");
         
         // Age statistics
-        double averageAge = patients.stream()
-            .mapToInt(p -> p.getAge())
-            .average()
-            .orElse(0.0);
+        double averageAge = total > 0 ? (double) ageSum / total : 0.0;
         report.append("Average Patient Age: ").append(String.format("%.1f years", averageAge)).append("\n");
         
         reportArea.setText(report.toString());
@@ -128,23 +139,22 @@ public class ReportPanel extends JPanel {
         report.append("CONSULTATION SUMMARY REPORT\n");
         report.append("===========================\n\n");
         
-        var consultations = consultationDAO.getAllConsultations();
-        var patients = patientDAO.getAllPatients();
+        // Counts come from the patient index, so no consultation records are read
+        Map<String, Integer> consultationsPerPatient = consultationDAO.countConsultationsByPatient();
+        long totalConsultations = consultationsPerPatient.values().stream().mapToLong(Integer::longValue).sum();
         
-        report.append("Total Consultations: ").append(consultations.size()).append("\n");
-        report.append("Total Patients with Consultations: ").append(
-            consultations.stream().map(c -> c.getPatientId()).distinct().count()
-        ).append("\n\n");
+        report.append("Total Consultations: ").append(totalConsultations).append("\n");
+        report.append("Total Patients with Consultations: ").append(consultationsPerPatient.size()).append("\n\n");
         
         // Consultations per patient
         report.append("Consultations per Patient:\n");
-        for (var patient : patients) {
-            long patientConsultations = consultations.stream()
-                .filter(c -> c.getPatientId().equals(patient.getPatientId()))
-                .count();
-            if (patientConsultations > 0) {
-                report.append("  ").append(patient.getName()).append(": ").append(patientConsultations).append(" consultations\n");
-            }
+        try (Stream<Patient> patients = patientDAO.streamPatients()) {
+            patients.forEach(patient -> {
+                int patientConsultations = consultationsPerPatient.getOrDefault(patient.getPatientId(), 0);
+                if (patientConsultations > 0) {
+                    report.append("  ").append(patient.getName()).append(": ").append(patientConsultations).append(" consultations\n");
+                }
+            });
         }
         
         reportArea.setText(report.toString());
@@ -155,24 +165,24 @@ public class ReportPanel extends JPanel {
         report.append("RISK ASSESSMENT OVERVIEW\n");
         report.append("========================\n\n");
         
-        var patients = patientDAO.getAllPatients();
-        
         report.append("High and Critical Risk Patients:\n");
         report.append("--------------------------------\n");
         
-        patients.stream()
-            .filter(p -> p.getRiskAssessment() == mentcare.models.Patient.RiskLevel.HIGH || 
-                        p.getRiskAssessment() == mentcare.models.Patient.RiskLevel.CRITICAL)
-            .forEach(patient -> {
-                report.append("Name: ").append(patient.getName()).append("\n");
-                report.append("  Patient ID: ").append(patient.getPatientId()).append("\n");
-                report.append("  Risk Level: ").append(patient.getRiskAssessment()).append("\n");
-                report.append("  Sectioned: ").append(patient.isSectioned() ? "Yes" : "No").append("\n");
-                if (patient.isSectioned() && patient.getReviewDate() != null) {
-                    report.append("  Next Review: ").append(patient.getReviewDate()).append("\n");
-                }
-                report.append("\n");
-            });
+        try (Stream<Patient> patients = patientDAO.streamPatients()) {
+            patients
+                .filter(p -> p.getRiskAssessment() == Patient.RiskLevel.HIGH || 
+                            p.getRiskAssessment() == Patient.RiskLevel.CRITICAL)
+                .forEach(patient -> {
+                    report.append("Name: ").append(patient.getName()).append("\n");
+                    report.append("  Patient ID: ").append(patient.getPatientId()).append("\n");
+                    report.append("  Risk Level: ").append(patient.getRiskAssessment()).append("\n");
+                    report.append("  Sectioned: ").append(patient.isSectioned() ? "Yes" : "No").append("\n");
+                    if (patient.isSectioned() && patient.getReviewDate() != null) {
+                        report.append("  Next Review: ").append(patient.getReviewDate()).append("\n");
+                    }
+                    report.append("\n");
+                });
+        }
         
         reportArea.setText(report.toString());
     }
@@ -182,20 +192,23 @@ public class ReportPanel extends JPanel {
         report.append("SECTIONED PATIENTS REPORT\n");
         report.append("=========================\n\n");
         
-        var patients = patientDAO.getAllPatients();
-        var sectionedPatients = patients.stream().filter(p -> p.isSectioned()).toList();
-        
-        report.append("Total Sectioned Patients: ").append(sectionedPatients.size()).append("\n\n");
-        
-        for (var patient : sectionedPatients) {
-            report.append("Patient: ").append(patient.getName()).append("\n");
-            report.append("  ID: ").append(patient.getPatientId()).append("\n");
-            report.append("  Risk Level: ").append(patient.getRiskAssessment()).append("\n");
-            report.append("  Sectioned Date: ").append(patient.getSectionedDate() != null ? patient.getSectionedDate() : "Not recorded").append("\n");
-            report.append("  Review Date: ").append(patient.getReviewDate() != null ? patient.getReviewDate() : "Not scheduled").append("\n");
-            report.append("\n");
+        StringBuilder details = new StringBuilder();
+        long[] sectionedCount = {0};
+        try (Stream<Patient> patients = patientDAO.streamPatients()) {
+            patients.filter(Patient::isSectioned).forEach(patient -> {
+                sectionedCount[0]++;
+                details.append("Patient: ").append(patient.getName()).append("\n");
+                details.append("  ID: ").append(patient.getPatientId()).append("\n");
+                details.append("  Risk Level: ").append(patient.getRiskAssessment()).append("\n");
+                details.append("  Sectioned Date: ").append(patient.getSectionedDate() != null ? patient.getSectionedDate() : "Not recorded").append("\n");
+                details.append("  Review Date: ").append(patient.getReviewDate() != null ? patient.getReviewDate() : "Not scheduled").append("\n");
+                details.append("\n");
+            });
         }
         
+        report.append("Total Sectioned Patients: ").append(sectionedCount[0]).append("\n\n");
+        report.append(details);
+        
         reportArea.setText(report.toString());
     }
     
@@ -0,0 +1,124 @@
+package mentcare.gui;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.DefaultTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Row of each record ID in a table whose first column holds the ID, kept in step with the model
+ * by listening to it, so finding a row costs a hash lookup rather than a scan. Inserting or
+ * removing rows renumbers only the rows after them, as the model itself shifts them; a change
+ * to the whole model rebuilds the map on the next lookup. Used on the event thread only.
+ */
+final class RowIndex implements TableModelListener {
+    private final DefaultTableModel model;
+    private final Map<Object, Row> rowsById = new HashMap<>();
+    // In model order
+    private final List<Row> rows = new ArrayList<>();
+    // Set when the model changed in a way the events do not describe row by row
+    private boolean stale = true;
+    
+    private static final class Row {
+        final Object id;
+        int index;
+        
+        Row(Object id, int index) {
+            this.id = id;
+            this.index = index;
+        }
+    }
+    
+    RowIndex(DefaultTableModel model) {
+        this.model = model;
+        model.addTableModelListener(this);
+    }
+    
+    // Row showing the ID, or -1
+    int find(String id) {
+        if (stale) {
+            rebuild();
+        }
+        Row row = rowsById.get(id);
+        return row != null ? row.index : -1;
+    }
+    
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        if (stale) {
+            return;
+        }
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        if (first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE
+                || e.getType() != TableModelEvent.INSERT && last >= rows.size()) {
+            stale = true;
+            return;
+        }
+        switch (e.getType()) {
+            case TableModelEvent.INSERT:
+                inserted(first, last);
+                break;
+            case TableModelEvent.DELETE:
+                deleted(first, last);
+                break;
+            default:
+                updated(first, last);
+        }
+    }
+    
+    private void inserted(int first, int last) {
+        List<Row> added = new ArrayList<>(last - first + 1);
+        for (int index = first; index <= last; index++) {
+            Row row = new Row(model.getValueAt(index, 0), index);
+            added.add(row);
+            rowsById.put(row.id, row);
+        }
+        rows.addAll(first, added);
+        renumber(last + 1);
+    }
+    
+    private void deleted(int first, int last) {
+        List<Row> removed = rows.subList(first, last + 1);
+        for (Row row : removed) {
+            rowsById.remove(row.id, row);
+        }
+        removed.clear();
+        renumber(first);
+    }
+    
+    // Cells were overwritten; only a changed ID needs re-keying
+    private void updated(int first, int last) {
+        for (int index = first; index <= last; index++) {
+            Object id = model.getValueAt(index, 0);
+            Row row = rows.get(index);
+            if (!Objects.equals(id, row.id)) {
+                rowsById.remove(row.id, row);
+                Row replaced = new Row(id, index);
+                rows.set(index, replaced);
+                rowsById.put(id, replaced);
+            }
+        }
+    }
+    
+    private void renumber(int from) {
+        for (int index = from; index < rows.size(); index++) {
+            rows.get(index).index = index;
+        }
+    }
+    
+    private void rebuild() {
+        rowsById.clear();
+        rows.clear();
+        for (int index = 0; index < model.getRowCount(); index++) {
+            Row row = new Row(model.getValueAt(index, 0), index);
+            rows.add(row);
+            rowsById.put(row.id, row);
+        }
+        stale = false;
+    }
+}
@@ -1,5 +1,7 @@
 package mentcare.gui;
 
+import mentcare.utils.Log;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -40,7 +42,7 @@ public class SystemSettingsPanel extends JPanel {
         // Logging settings
         settingsPanel.add(new JLabel("Log Level:"));
         logLevelComboBox = new JComboBox<>(new String[]{"DEBUG", "INFO", "WARN", "ERROR"});
-        logLevelComboBox.setSelectedItem("INFO");
+        logLevelComboBox.setSelectedItem(Log.getLevel().name());
         settingsPanel.add(logLevelComboBox);
         
         // Data retention
@@ -108,6 +110,9 @@ public class SystemSettingsPanel extends JPanel {
                 return;
             }
             
+            // Log level takes effect immediately
+            Log.setLevel(Log.Level.valueOf((String) logLevelComboBox.getSelectedItem()));
+            
             // Save settings (in real implementation, this would persist to configuration)
             JOptionPane.showMessageDialog(SystemSettingsPanel.this,
                 "System settings saved successfully!\n\n" +
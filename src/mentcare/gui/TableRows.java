@@ -0,0 +1,30 @@
+package mentcare.gui;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
+import java.util.Vector;
+
+// Row-level edits for tables whose first column holds the record ID
+final class TableRows {
+    private TableRows() {
+    }
+    
+    // Overwrites the row's cells and repaints just that row
+    @SuppressWarnings("unchecked")
+    static void replace(DefaultTableModel model, int row, Object[] values) {
+        Vector<Object> cells = (Vector<Object>) model.getDataVector().get(row);
+        for (int column = 0; column < values.length; column++) {
+            cells.set(column, values[column]);
+        }
+        model.fireTableRowsUpdated(row, row);
+    }
+    
+    // DAO changes arrive on the saving thread; table models are only touched on the event thread
+    static void onEventThread(Runnable update) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            update.run();
+        } else {
+            SwingUtilities.invokeLater(update);
+        }
+    }
+}
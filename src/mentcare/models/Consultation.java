@@ -26,6 +26,19 @@ public class Consultation {
         this.recordUpdated = false;
     }
     
+    // Independent copy, lists included
+    public Consultation(Consultation source) {
+        this(source.consultationId, source.patientId, source.dateTime);
+        this.staffIds.addAll(source.staffIds);
+        this.subjectiveImpressions = source.subjectiveImpressions;
+        this.diagnoses.addAll(source.diagnoses);
+        for (Prescription prescription : source.prescriptions) {
+            this.prescriptions.add(new Prescription(prescription));
+        }
+        this.referrals.addAll(source.referrals);
+        this.recordUpdated = source.recordUpdated;
+    }
+    
     // Getters and setters
     public String getConsultationId() { return consultationId; }
     public String getPatientId() { return patientId; }
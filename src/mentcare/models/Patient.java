@@ -36,6 +36,19 @@ public class Patient {
         this.isSectioned = false;
     }
     
+    // Independent copy; reads through the getters so subclasses copy what they present
+    public Patient(Patient source) {
+        this(source.getPatientId(), source.getNationalHealthNumber(), source.getName(),
+            source.getAddress(), source.getDateOfBirth(), source.getContactDetails());
+        this.registeredPractice = source.getRegisteredPractice();
+        this.nextOfKin = source.nextOfKin;
+        this.riskAssessment = source.getRiskAssessment();
+        this.conditions.addAll(source.getConditions());
+        this.isSectioned = source.isSectioned();
+        this.sectionedDate = source.getSectionedDate();
+        this.reviewDate = source.getReviewDate();
+    }
+    
     // Getters and setters
     public String getPatientId() { return patientId; }
     public String getNationalHealthNumber() { return nationalHealthNumber; }
@@ -43,6 +56,8 @@ public class Patient {
     public String getAddress() { return address; }
     public LocalDate getDateOfBirth() { return dateOfBirth; }
     public String getContactDetails() { return contactDetails; }
+    public String getRegisteredPractice() { return registeredPractice; }
+    public void setRegisteredPractice(String registeredPractice) { this.registeredPractice = registeredPractice; }
     public RiskLevel getRiskAssessment() { return riskAssessment; }
     public void setRiskAssessment(RiskLevel riskAssessment) { this.riskAssessment = riskAssessment; }
     public List<String> getConditions() { return conditions; }
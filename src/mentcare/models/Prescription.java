@@ -27,6 +27,14 @@ public class Prescription {
         this.isRepeat = false;
     }
     
+    public Prescription(Prescription source) {
+        this(source.prescriptionId, source.patientId, source.drugName, source.dosage,
+            source.frequency, source.startDate, source.prescriberId);
+        this.endDate = source.endDate;
+        this.isRepeat = source.isRepeat;
+        this.comments = source.comments;
+    }
+    
     // Getters and setters
     public String getPrescriptionId() { return prescriptionId; }
     public String getPatientId() { return patientId; }
@@ -20,6 +20,11 @@ public class User {
         this.fullName = fullName;
     }
     
+    public User(User source) {
+        this(source.userId, source.username, source.password, source.role, source.fullName);
+        this.contactInfo = source.contactInfo;
+    }
+    
     // Getters and setters
     public String getUserId() { return userId; }
     public String getUsername() { return username; }
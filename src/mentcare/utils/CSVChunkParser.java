@@ -0,0 +1,251 @@
+package mentcare.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Parses a large CSV file on several cores.
+ * The file is cut into byte ranges that start on record boundaries, each range is parsed by
+ * its own CSVRowReader in the common ForkJoinPool, and the results are joined in file order.
+ * A boundary can only be found by knowing whether it falls inside a quoted field, so every
+ * slice of the file is first scanned in parallel from each possible tokenizer state; chaining
+ * the slices from the start of the file then picks the real state, and with it the first
+ * record boundary, of each slice. Files too small to be worth splitting are read on the
+ * calling thread.
+ * Rows are handed to a consumer a few ranges at a time instead of collecting the whole
+ * file, so a store that keeps its records elsewhere never holds every parsed row.
+ */
+public final class CSVChunkParser {
+    // Smallest range worth handing to another thread
+    private static final long MIN_CHUNK_BYTES = 4L * 1024 * 1024;
+    // Ranges per worker, so that uneven rows still balance
+    private static final int CHUNKS_PER_THREAD = 4;
+    // Largest range when streaming, which bounds the rows held at once
+    private static final long MAX_STREAM_CHUNK_BYTES = 16L * 1024 * 1024;
+    private static final int SCAN_BUFFER = 64 * 1024;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    
+    // Tokenizer states, as in CSVRowReader
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int STATES = 4;
+    
+    private CSVChunkParser() {
+    }
+    
+    /**
+     * Parses every row with the parser, passing the non-null results to the consumer in file order.
+     * The first row is skipped when its first field equals headerField.
+     * The parser is called from several threads at once and must not share mutable state.
+     * Up to one range per worker is parsed at a time, and each range is consumed before the
+     * next group starts. The consumer is only called from the calling thread.
+     */
+    public static <T> void parse(String filename, String headerField, Function<CSVRecord, T> parser,
+                                 Consumer<? super T> consumer) {
+        try {
+            long[] bounds = recordBoundaries(filename, MAX_STREAM_CHUNK_BYTES);
+            int ranges = bounds.length - 1;
+            int group = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+            for (int first = 0; first < ranges; first += group) {
+                int last = Math.min(first + group, ranges);
+                ChunkTask<T> task = new ChunkTask<>(filename, headerField, parser, bounds, first, last);
+                List<T> rows = last - first > 1 ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+                rows.forEach(consumer);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            Log.error("Error reading CSV file: " + e.getMessage());
+        }
+    }
+    
+    // Offsets where each range starts, followed by the file size
+    static long[] recordBoundaries(String filename, long maxChunkBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int threads = ForkJoinPool.getCommonPoolParallelism();
+            int slices = threads > 1 ? (int) Math.min((long) threads * CHUNKS_PER_THREAD, size / MIN_CHUNK_BYTES) : 1;
+            slices = (int) Math.max(slices, size / maxChunkBytes + 1);
+            if (slices <= 1) {
+                return new long[] {0, size};
+            }
+            
+            long[] starts = new long[slices + 1];
+            for (int i = 0; i <= slices; i++) {
+                starts[i] = size * i / slices;
+            }
+            
+            // A byte order mark is skipped by the reader, so it must not count as field text
+            ByteBuffer bom = ByteBuffer.allocate(UTF8_BOM.length);
+            channel.read(bom, 0);
+            if (Arrays.equals(bom.array(), UTF8_BOM)) {
+                starts[0] = UTF8_BOM.length;
+            }
+            
+            SliceScan[] scans = new SliceScan[slices];
+            try {
+                IntStream.range(0, slices).parallel().forEach(i -> scans[i] = scan(channel, starts[i], starts[i + 1]));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            
+            List<Long> bounds = new ArrayList<>();
+            bounds.add(0L);
+            int state = FIELD_START;
+            for (int i = 0; i < slices; i++) {
+                long boundary = scans[i].firstBoundary[state];
+                if (i > 0 && boundary >= 0 && boundary < size) {
+                    bounds.add(boundary);
+                }
+                state = scans[i].endState[state];
+            }
+            bounds.add(size);
+            
+            long[] result = new long[bounds.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = bounds.get(i);
+            }
+            return result;
+        }
+    }
+    
+    // Where one slice ends up, and where its first record starts, for each state it may begin in
+    private static final class SliceScan {
+        final int[] endState = new int[STATES];
+        final long[] firstBoundary = new long[STATES];
+    }
+    
+    private static SliceScan scan(FileChannel channel, long from, long to) {
+        SliceScan scan = new SliceScan();
+        int[] states = {FIELD_START, UNQUOTED, QUOTED, QUOTE_IN_QUOTED};
+        // Stays -1 when a record spans the whole slice
+        Arrays.fill(scan.firstBoundary, -1);
+        
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+        long position = from;
+        try {
+            while (position < to) {
+                buffer.clear();
+                buffer.limit((int) Math.min(SCAN_BUFFER, to - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                byte[] bytes = buffer.array();
+                for (int i = 0; i < read; i++) {
+                    // Multi-byte UTF-8 sequences never contain these ASCII bytes
+                    byte b = bytes[i];
+                    for (int s = 0; s < STATES; s++) {
+                        int next = step(states[s], b);
+                        if (next < 0) {
+                            next = FIELD_START;
+                            if (scan.firstBoundary[s] < 0) {
+                                scan.firstBoundary[s] = position + i + 1;
+                            }
+                        }
+                        states[s] = next;
+                    }
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        System.arraycopy(states, 0, scan.endState, 0, STATES);
+        return scan;
+    }
+    
+    // Next tokenizer state after one byte, or -1 at the end of a record
+    private static int step(int state, byte b) {
+        if (state == QUOTED) {
+            return b == '"' ? QUOTE_IN_QUOTED : QUOTED;
+        }
+        if (state == QUOTE_IN_QUOTED) {
+            if (b == '"') {
+                return QUOTED;
+            }
+            state = UNQUOTED;
+        }
+        switch (b) {
+            case ',':
+                return FIELD_START;
+            case '\n':
+                return -1;
+            case '\r':
+                return state;
+            case '"':
+                return state == FIELD_START ? QUOTED : UNQUOTED;
+            default:
+                return UNQUOTED;
+        }
+    }
+    
+    // Splits the ranges in half until one is left, then parses it
+    private static final class ChunkTask<T> extends RecursiveTask<List<T>> {
+        private static final long serialVersionUID = 1L;
+        
+        private final String filename;
+        private final String headerField;
+        private final transient Function<CSVRecord, T> parser;
+        private final long[] bounds;
+        private final int first;
+        private final int last;
+        
+        ChunkTask(String filename, String headerField, Function<CSVRecord, T> parser,
+                  long[] bounds, int first, int last) {
+            this.filename = filename;
+            this.headerField = headerField;
+            this.parser = parser;
+            this.bounds = bounds;
+            this.first = first;
+            this.last = last;
+        }
+        
+        @Override
+        protected List<T> compute() {
+            if (last - first > 1) {
+                int middle = (first + last) >>> 1;
+                ChunkTask<T> right = new ChunkTask<>(filename, headerField, parser, bounds, middle, last);
+                right.fork();
+                List<T> result = new ChunkTask<>(filename, headerField, parser, bounds, first, middle).compute();
+                result.addAll(right.join());
+                return result;
+            }
+            
+            List<T> result = new ArrayList<>();
+            try (CSVRowReader reader = new CSVRowReader(filename, bounds[first], bounds[last])) {
+                CSVRecord record;
+                boolean firstRow = bounds[first] == 0;
+                while ((record = reader.nextRecord()) != null) {
+                    // Skip header row if exists
+                    if (firstRow) {
+                        firstRow = false;
+                        if (headerField != null && record.fieldEquals(0, headerField)) {
+                            continue;
+                        }
+                    }
+                    T parsed = parser.apply(record);
+                    if (parsed != null) {
+                        result.add(parsed);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package mentcare.utils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * One parsed CSV row held as offsets into a reusable char buffer.
+ * Quotes are already removed and escaped quotes collapsed, so each field is a contiguous slice;
+ * a String is only allocated when a field is read with get().
+ * Records returned by CSVRowReader are reused for the next row; read what is needed first.
+ */
+public final class CSVRecord {
+    private char[] chars = new char[256];
+    private int length;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int size;
+    private int fieldStart;
+    
+    public static CSVRecord of(String... fields) {
+        CSVRecord record = new CSVRecord();
+        for (String field : fields) {
+            for (int i = 0; i < field.length(); i++) {
+                record.append(field.charAt(i));
+            }
+            record.endField();
+        }
+        return record;
+    }
+    
+    public int size() { return size; }
+    
+    public String get(int index) {
+        checkIndex(index);
+        return new String(chars, starts[index], ends[index] - starts[index]);
+    }
+    
+    // The field as the dictionary's shared instance; nothing is allocated for a value it already holds
+    public String get(int index, StringDictionary dictionary) {
+        checkIndex(index);
+        return dictionary.intern(chars, starts[index], ends[index]);
+    }
+    
+    // Adds the parts of the field around separator, interned; same parts as String.split
+    public void split(int index, char separator, StringDictionary dictionary, Collection<String> target) {
+        checkIndex(index);
+        int partStart = starts[index];
+        int emptyParts = 0;
+        for (int i = starts[index]; i <= ends[index]; i++) {
+            if (i < ends[index] && chars[i] != separator) {
+                continue;
+            }
+            if (i == partStart) {
+                emptyParts++; // Trailing empty parts are dropped, so hold them back
+            } else {
+                for (; emptyParts > 0; emptyParts--) {
+                    target.add("");
+                }
+                target.add(dictionary.intern(chars, partStart, i));
+            }
+            partStart = i + 1;
+        }
+    }
+    
+    // Decoded straight from the buffer; see ISODates
+    public LocalDate getDate(int index) {
+        checkIndex(index);
+        return ISODates.parseDate(chars, starts[index], ends[index]);
+    }
+    
+    public LocalDateTime getDateTime(int index) {
+        checkIndex(index);
+        return ISODates.parseDateTime(chars, starts[index], ends[index]);
+    }
+    
+    public boolean isEmpty(int index) {
+        checkIndex(index);
+        return starts[index] == ends[index];
+    }
+    
+    // Compares without allocating a String for the field
+    public boolean fieldEquals(int index, String value) {
+        checkIndex(index);
+        int fieldLength = ends[index] - starts[index];
+        if (fieldLength != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < fieldLength; i++) {
+            if (chars[starts[index] + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public String[] toArray() {
+        String[] fields = new String[size];
+        for (int i = 0; i < size; i++) {
+            fields[i] = get(i);
+        }
+        return fields;
+    }
+    
+    @Override
+    public String toString() {
+        return CSVUtils.formatRow(toArray());
+    }
+    
+    void clear() {
+        length = 0;
+        size = 0;
+        fieldStart = 0;
+    }
+    
+    void append(char c) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, length * 2);
+        }
+        chars[length++] = c;
+    }
+    
+    void endField() {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = fieldStart;
+        ends[size] = length;
+        size++;
+        fieldStart = length;
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + size);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package mentcare.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Pull-style RFC 4180 CSV reader that streams a file through a large direct buffer.
+ * Fields may be quoted, in which case they can contain commas, line breaks and
+ * doubled quotes. Bytes are decoded as UTF-8 into a reusable char buffer and the
+ * tokenizer fills one reusable CSVRecord, so no per-row objects are created until
+ * a field is read.
+ * A reader can also be limited to a byte range that starts and ends on record boundaries,
+ * which is how CSVChunkParser splits one file across threads.
+ * The file is read rather than memory-mapped because a live mapping pins the file on Windows
+ * and would block the rename in CSVUtils.replaceCSV.
+ */
+public class CSVRowReader implements Closeable {
+    // Size of the direct buffer the file is streamed through
+    private static final int READ_CHUNK = 1024 * 1024;
+    
+    // Tokenizer states
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    
+    private final FileChannel channel;
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CSVRecord record = new CSVRecord();
+    // Bytes of the range not yet read from the channel
+    private long remaining;
+    
+    private char[] charArray;
+    private int charPosition;
+    private int charLimit;
+    private boolean drained;
+    private boolean firstChar;
+    private boolean lastRecordTerminated;
+    
+    public CSVRowReader(String filename) throws IOException {
+        this(filename, 0, Long.MAX_VALUE);
+    }
+    
+    // Reads only the bytes from start (inclusive) to end (exclusive)
+    public CSVRowReader(String filename, long start, long end) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        channel.position(start);
+        this.remaining = Math.max(0, Math.min(end, channel.size()) - start);
+        this.firstChar = start == 0;
+        int capacity = (int) Math.max(16, Math.min(READ_CHUNK, remaining));
+        this.bytes = ByteBuffer.allocateDirect(capacity);
+        // A UTF-8 byte never decodes to more than one char, so this always has room
+        this.chars = CharBuffer.allocate(capacity);
+        this.charArray = chars.array();
+    }
+    
+    /**
+     * Returns the next non-blank row, or null at end of file.
+     * The record is reused by the following call.
+     */
+    public CSVRecord nextRecord() throws IOException {
+        while (true) {
+            record.clear();
+            int state = FIELD_START;
+            boolean sawQuote = false;
+            
+            while (true) {
+                if (charPosition == charLimit && !fill()) {
+                    // End of file: finish a record that lacks its trailing newline
+                    if (state == FIELD_START && record.size() == 0) {
+                        return null;
+                    }
+                    record.endField();
+                    lastRecordTerminated = false;
+                    return record;
+                }
+                
+                char c = charArray[charPosition++];
+                if (firstChar) {
+                    firstChar = false;
+                    if (c == '\uFEFF') {
+                        continue; // Byte order mark
+                    }
+                }
+                
+                if (state == QUOTED) {
+                    if (c == '"') {
+                        state = QUOTE_IN_QUOTED;
+                    } else {
+                        record.append(c);
+                    }
+                    continue;
+                }
+                
+                if (state == QUOTE_IN_QUOTED) {
+                    if (c == '"') {
+                        record.append('"'); // Escaped quote
+                        state = QUOTED;
+                        continue;
+                    }
+                    state = UNQUOTED; // Closing quote; anything else before the delimiter is kept as text
+                }
+                
+                if (c == ',') {
+                    record.endField();
+                    state = FIELD_START;
+                } else if (c == '\n') {
+                    break;
+                } else if (c == '\r') {
+                    // Dropped outside quotes; it precedes the newline in CRLF files
+                } else if (c == '"' && state == FIELD_START) {
+                    state = QUOTED;
+                    sawQuote = true;
+                } else {
+                    record.append(c);
+                    state = UNQUOTED;
+                }
+            }
+            
+            record.endField();
+            lastRecordTerminated = true;
+            
+            // Skip blank lines
+            if (record.size() == 1 && record.isEmpty(0) && !sawQuote) {
+                continue;
+            }
+            return record;
+        }
+    }
+    
+    // False when the last record returned ran into end of file without a newline
+    public boolean isLastRecordTerminated() {
+        return lastRecordTerminated;
+    }
+    
+    private boolean fill() throws IOException {
+        chars.clear();
+        while (chars.position() == 0 && !drained) {
+            bytes.limit((int) Math.min(bytes.capacity(), bytes.position() + remaining));
+            int read = remaining > 0 ? channel.read(bytes) : -1;
+            if (read > 0) {
+                remaining -= read;
+            }
+            boolean endOfInput = read < 0;
+            bytes.flip();
+            decoder.decode(bytes, chars, endOfInput);
+            bytes.compact();
+            if (endOfInput) {
+                decoder.flush(chars);
+                drained = true;
+            }
+        }
+        chars.flip();
+        charPosition = 0;
+        charLimit = chars.limit();
+        return charLimit > 0;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
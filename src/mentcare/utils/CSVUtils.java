@@ -1,40 +1,172 @@
 package mentcare.utils;
 
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class CSVUtils {
     
-    public static List<String[]> readCSV(String filename) {
-        List<String[]> data = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(",");
-                data.add(values);
-            }
+    /**
+     * Lazily parsed rows; the file stays open until the stream is closed,
+     * so callers should use try-with-resources. A missing file yields an empty stream.
+     */
+    public static Stream<String[]> streamCSV(String filename) {
+        return streamRecords(filename).map(CSVRecord::toArray);
+    }
+    
+    /**
+     * Like streamCSV, but without materializing the fields. The same CSVRecord instance is
+     * refilled for every element, so each one must be consumed before the next is pulled
+     * (map it rather than collecting the records themselves).
+     */
+    public static Stream<CSVRecord> streamRecords(String filename) {
+        CSVRowReader reader;
+        try {
+            reader = new CSVRowReader(filename);
         } catch (IOException e) {
-            System.err.println("Error reading CSV file: " + e.getMessage());
+            Log.error("Error reading CSV file: " + e.getMessage());
+            return Stream.empty();
+        }
+        
+        Spliterator<CSVRecord> records = new Spliterators.AbstractSpliterator<CSVRecord>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super CSVRecord> action) {
+                try {
+                    CSVRecord record = reader.nextRecord();
+                    if (record == null) {
+                        return false;
+                    }
+                    action.accept(record);
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        
+        return StreamSupport.stream(records, false).onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                Log.error("Error closing CSV file: " + e.getMessage());
+            }
+        });
+    }
+    
+    // Quote fields containing delimiters, quotes or line breaks as described in RFC 4180
+    public static String formatRow(String[] row) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            appendField(line, row[i]);
+        }
+        return line.toString();
+    }
+    
+    private static void appendField(StringBuilder line, String field) {
+        if (field == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < field.length() && !needsQuotes; i++) {
+            char c = field.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            line.append(field);
+            return;
         }
-        return data;
+        
+        line.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
     }
     
     public static void writeCSV(String filename, List<String[]> data) {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(filename))) {
+        try (PrintWriter pw = new PrintWriter(new FileWriter(filename, StandardCharsets.UTF_8))) {
+            for (String[] row : data) {
+                pw.println(formatRow(row));
+            }
+        } catch (IOException e) {
+            Log.error("Error writing CSV file: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Write to a temporary file and rename it over the target, so a crash never leaves a truncated
+     * file and a reader never sees a half-written one. The data is forced to disk before the rename
+     * and the directory after it, so once this returns true the new file survives a power loss and
+     * whatever it supersedes (such as a journal) may be deleted.
+     */
+    public static boolean replaceCSV(String filename, List<String[]> data) {
+        Path target = Paths.get(filename).toAbsolutePath();
+        // Per-process name, so processes sharing the directory never write the same temporary file
+        Path temp = Paths.get(target + "." + ProcessHandle.current().pid() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile());
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
             for (String[] row : data) {
-                pw.println(String.join(",", row));
+                writer.write(formatRow(row));
+                writer.write(System.lineSeparator());
             }
+            writer.flush();
+            out.getChannel().force(true);
+        } catch (IOException e) {
+            Log.error("Error writing CSV file: " + e.getMessage());
+            temp.toFile().delete();
+            return false;
+        }
+        
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Log.error("Error replacing CSV file: " + e.getMessage());
+            temp.toFile().delete();
+            return false;
+        }
+        return syncDirectory(target.getParent());
+    }
+    
+    // Makes a rename in the directory durable. Some platforms (Windows) cannot open a directory;
+    // there the rename is as durable as the file system makes it
+    private static boolean syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+            return true;
+        } catch (AccessDeniedException | UnsupportedOperationException e) {
+            Log.debug("Cannot sync directory " + directory + ": " + e.getMessage());
+            return true;
         } catch (IOException e) {
-            System.err.println("Error writing CSV file: " + e.getMessage());
+            Log.error("Error syncing directory " + directory + ": " + e.getMessage());
+            return false;
         }
     }
     
     public static void appendToCSV(String filename, String[] row) {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(filename, true))) {
-            pw.println(String.join(",", row));
+        try (PrintWriter pw = new PrintWriter(new FileWriter(filename, StandardCharsets.UTF_8, true))) {
+            pw.println(formatRow(row));
         } catch (IOException e) {
-            System.err.println("Error appending to CSV file: " + e.getMessage());
+            Log.error("Error appending to CSV file: " + e.getMessage());
         }
     }
 }
\ No newline at end of file
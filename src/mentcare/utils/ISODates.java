@@ -0,0 +1,138 @@
+package mentcare.utils;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Decoder and encoder for the fixed ISO layouts the data files use, yyyy-MM-dd and
+ * yyyy-MM-ddTHH:mm[:ss], working on chars directly instead of going through
+ * DateTimeFormatter. Anything else (other widths, fractions of a second, years beyond
+ * four digits) is handed to the ISO formatters, so the results and the exceptions for
+ * bad input are the same as LocalDate.parse and LocalDateTime.parse.
+ * Decoded dates go through a small cache, since birth and start dates repeat a lot.
+ */
+public final class ISODates {
+    // Direct-mapped; a collision just replaces the older date
+    private static final int CACHE_SIZE = 4096;
+    // Racy on purpose: LocalDate is immutable, so a stale or missing slot only costs a miss
+    private static final LocalDate[] cache = new LocalDate[CACHE_SIZE];
+    
+    private ISODates() {
+    }
+    
+    // Decodes chars[start, end)
+    static LocalDate parseDate(char[] chars, int start, int end) {
+        if (end - start == 10 && isDateLayout(chars, start)) {
+            try {
+                return date(digits(chars, start, 4), digits(chars, start + 5, 2), digits(chars, start + 8, 2));
+            } catch (DateTimeException e) {
+                throw invalid(chars, start, end, e);
+            }
+        }
+        return LocalDate.parse(new String(chars, start, end - start), DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+    
+    // Decodes chars[start, end); seconds are optional as in ISO_LOCAL_DATE_TIME
+    static LocalDateTime parseDateTime(char[] chars, int start, int end) {
+        int length = end - start;
+        if ((length == 16 || length == 19) && isDateLayout(chars, start) && chars[start + 10] == 'T'
+                && isDigits(chars, start + 11, 2) && chars[start + 13] == ':' && isDigits(chars, start + 14, 2)
+                && (length == 16 || chars[start + 16] == ':' && isDigits(chars, start + 17, 2))) {
+            try {
+                LocalDate date = date(digits(chars, start, 4), digits(chars, start + 5, 2), digits(chars, start + 8, 2));
+                int second = length == 19 ? digits(chars, start + 17, 2) : 0;
+                return LocalDateTime.of(date, LocalTime.of(digits(chars, start + 11, 2), digits(chars, start + 14, 2), second));
+            } catch (DateTimeException e) {
+                throw invalid(chars, start, end, e);
+            }
+        }
+        return LocalDateTime.parse(new String(chars, start, length), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+    
+    // Same text as ISO_LOCAL_DATE
+    public static String formatDate(LocalDate date) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            return date.format(DateTimeFormatter.ISO_LOCAL_DATE);
+        }
+        char[] chars = new char[10];
+        writeDate(chars, year, date.getMonthValue(), date.getDayOfMonth());
+        return new String(chars);
+    }
+    
+    // Same text as ISO_LOCAL_DATE_TIME: seconds always, fractions only when present
+    public static String formatDateTime(LocalDateTime dateTime) {
+        int year = dateTime.getYear();
+        if (year < 0 || year > 9999 || dateTime.getNano() != 0) {
+            return dateTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        }
+        char[] chars = new char[19];
+        writeDate(chars, year, dateTime.getMonthValue(), dateTime.getDayOfMonth());
+        chars[10] = 'T';
+        writeDigits(chars, 11, dateTime.getHour(), 2);
+        chars[13] = ':';
+        writeDigits(chars, 14, dateTime.getMinute(), 2);
+        chars[16] = ':';
+        writeDigits(chars, 17, dateTime.getSecond(), 2);
+        return new String(chars);
+    }
+    
+    private static LocalDate date(int year, int month, int day) {
+        int slot = (((year * 13 + month) * 32 + day) * 0x9E3779B1 >>> 20) & (CACHE_SIZE - 1);
+        LocalDate cached = cache[slot];
+        if (cached != null && cached.getDayOfMonth() == day && cached.getMonthValue() == month
+                && cached.getYear() == year) {
+            return cached;
+        }
+        LocalDate date = LocalDate.of(year, month, day);
+        cache[slot] = date;
+        return date;
+    }
+    
+    // Out-of-range fields such as 2023-02-30, reported the way the strict ISO formatters do
+    private static DateTimeParseException invalid(char[] chars, int start, int end, DateTimeException cause) {
+        String text = new String(chars, start, end - start);
+        return new DateTimeParseException("Text '" + text + "' could not be parsed: " + cause.getMessage(), text, 0, cause);
+    }
+    
+    private static boolean isDateLayout(char[] chars, int start) {
+        return isDigits(chars, start, 4) && chars[start + 4] == '-' && isDigits(chars, start + 5, 2)
+            && chars[start + 7] == '-' && isDigits(chars, start + 8, 2);
+    }
+    
+    private static boolean isDigits(char[] chars, int start, int count) {
+        for (int i = start; i < start + count; i++) {
+            if (chars[i] < '0' || chars[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int digits(char[] chars, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            value = value * 10 + (chars[i] - '0');
+        }
+        return value;
+    }
+    
+    private static void writeDate(char[] chars, int year, int month, int day) {
+        writeDigits(chars, 0, year, 4);
+        chars[4] = '-';
+        writeDigits(chars, 5, month, 2);
+        chars[7] = '-';
+        writeDigits(chars, 8, day, 2);
+    }
+    
+    private static void writeDigits(char[] chars, int start, int value, int count) {
+        for (int i = start + count - 1; i >= start; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package mentcare.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Application log.
+ * Callers only format the message and put it on a lock-free ring buffer; a background
+ * thread drains the buffer into logs/mentcare.log, which rolls over to mentcare.log.1 ...
+ * once it reaches MAX_FILE_BYTES. Warnings and errors are also echoed to stderr.
+ * Messages below the current level are dropped before anything is built, and per-row
+ * tracing should additionally be guarded with isDebugEnabled() so the message string
+ * itself is never concatenated. If the buffer is full, messages are dropped and counted
+ * rather than stalling the caller.
+ * The starting level comes from the mentcare.log.level system property (default INFO).
+ */
+public final class Log {
+    public static final String LEVEL_PROPERTY = "mentcare.log.level";
+    
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+    
+    static final String LOG_DIRECTORY = "logs";
+    static final String LOG_FILE = "mentcare.log";
+    // Size at which the log file is rolled over
+    static final long MAX_FILE_BYTES = 5L * 1024 * 1024;
+    // Rolled-over files kept besides the current one
+    static final int BACKUP_FILES = 3;
+    private static final int BUFFER_CAPACITY = 8192;
+    // A burst wakes the writer every this many messages so the buffer does not fill up
+    private static final int WAKE_INTERVAL = 1024;
+    // How long the writer sleeps when the buffer is empty
+    private static final long IDLE_NANOS = 50_000_000L;
+    private static final DateTimeFormatter TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    
+    private static final RingBuffer<Entry> buffer = new RingBuffer<>(BUFFER_CAPACITY);
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile boolean closing;
+    private static volatile int threshold = initialLevel().ordinal();
+    private static final Thread writer = startWriter();
+    
+    private Log() {
+    }
+    
+    private static final class Entry {
+        final long time;
+        final Level level;
+        final String thread;
+        final String message;
+        final Throwable error;
+        
+        Entry(Level level, String message, Throwable error) {
+            this.time = System.currentTimeMillis();
+            this.level = level;
+            this.thread = Thread.currentThread().getName();
+            this.message = message;
+            this.error = error;
+        }
+    }
+    
+    public static Level getLevel() {
+        return Level.values()[threshold];
+    }
+    
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+    
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+    
+    public static boolean isDebugEnabled() {
+        return threshold == 0;
+    }
+    
+    public static void debug(String message) { log(Level.DEBUG, message, null); }
+    public static void info(String message) { log(Level.INFO, message, null); }
+    public static void warn(String message) { log(Level.WARN, message, null); }
+    public static void error(String message) { log(Level.ERROR, message, null); }
+    public static void error(String message, Throwable error) { log(Level.ERROR, message, error); }
+    
+    public static void log(Level level, String message, Throwable error) {
+        if (level.ordinal() < threshold) {
+            return;
+        }
+        long position = buffer.offer(new Entry(level, message, error));
+        if (position < 0) {
+            dropped.incrementAndGet();
+        }
+        if (position % WAKE_INTERVAL == 0 || level.ordinal() >= Level.WARN.ordinal()) {
+            LockSupport.unpark(writer);
+        }
+    }
+    
+    private static Level initialLevel() {
+        try {
+            return Level.valueOf(System.getProperty(LEVEL_PROPERTY, Level.INFO.name()).trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid log level '" + System.getProperty(LEVEL_PROPERTY) + "'. Using INFO.");
+            return Level.INFO;
+        }
+    }
+    
+    private static Thread startWriter() {
+        Thread thread = new Thread(Log::drainLoop, "mentcare-log");
+        thread.setDaemon(true);
+        thread.start();
+        // Whatever is still buffered at exit is written before the JVM goes
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            closing = true;
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        return thread;
+    }
+    
+    // Runs on the writer thread only
+    private static void drainLoop() {
+        File directory = new File(LOG_DIRECTORY);
+        File file = new File(directory, LOG_FILE);
+        Writer out = null;
+        // Counted in chars, which is close enough to decide when to roll
+        long written = 0;
+        
+        while (true) {
+            Entry entry = buffer.poll();
+            if (entry == null) {
+                try {
+                    if (out != null) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing log file: " + e.getMessage());
+                    out = null;
+                }
+                long lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    buffer.offer(new Entry(Level.WARN, lost + " log messages dropped; the log buffer was full", null));
+                    continue;
+                }
+                if (closing) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_NANOS);
+                continue;
+            }
+            
+            String line = format(entry);
+            if (entry.level.ordinal() >= Level.WARN.ordinal()) {
+                System.err.print(line);
+            }
+            
+            try {
+                if (out == null) {
+                    directory.mkdirs();
+                    written = file.length();
+                    out = open(file);
+                }
+                if (written + line.length() > MAX_FILE_BYTES && written > 0) {
+                    out.close();
+                    roll(file);
+                    written = 0;
+                    out = open(file);
+                }
+                out.write(line);
+                written += line.length();
+            } catch (IOException e) {
+                System.err.println("Error writing log file: " + e.getMessage());
+                out = null;
+            }
+        }
+    }
+    
+    private static Writer open(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+    
+    // mentcare.log becomes mentcare.log.1, .1 becomes .2 and so on; the oldest is deleted
+    private static void roll(File file) {
+        File oldest = new File(file.getPath() + "." + BACKUP_FILES);
+        if (oldest.exists() && !oldest.delete()) {
+            System.err.println("Error deleting old log file " + oldest);
+        }
+        for (int i = BACKUP_FILES - 1; i >= 1; i--) {
+            File from = new File(file.getPath() + "." + i);
+            if (from.exists()) {
+                from.renameTo(new File(file.getPath() + "." + (i + 1)));
+            }
+        }
+        file.renameTo(new File(file.getPath() + ".1"));
+    }
+    
+    private static String format(Entry entry) {
+        StringBuilder line = new StringBuilder(64 + entry.message.length());
+        line.append(TIMESTAMP.format(Instant.ofEpochMilli(entry.time)))
+            .append(' ').append(entry.level)
+            .append(" [").append(entry.thread).append("] ")
+            .append(entry.message)
+            .append(System.lineSeparator());
+        if (entry.error != null) {
+            StringWriter trace = new StringWriter();
+            entry.error.printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package mentcare.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * Each slot carries a sequence number: a producer claims a position with one CAS on the
+ * tail and publishes the element by advancing the slot's sequence, and the consumer takes
+ * an element only once its slot's sequence shows it was published. A full buffer rejects
+ * the element instead of blocking the producer.
+ */
+final class RingBuffer<E> {
+    private final int mask;
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Only touched by the consumer
+    private long head;
+    
+    // Capacity is rounded up to a power of two
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+    
+    // Returns the position the element was stored at, or -1 when the buffer is full
+    long offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = element;
+                    // Volatile write publishes the slot to the consumer
+                    sequences.set(index, position + 1);
+                    return position;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return -1;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+    
+    // Next published element, or null if there is none; consumer thread only
+    @SuppressWarnings("unchecked")
+    E poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = (E) slots[index];
+        slots[index] = null;
+        // Hand the slot back to producers for the next lap
+        sequences.set(index, head + slots.length);
+        head++;
+        return element;
+    }
+}
@@ -0,0 +1,141 @@
+package mentcare.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Shared instances for the values of one repetitive column, such as drug names or staff IDs,
+ * so that thousands of equal fields hold one String between them.
+ * Lookups by char range do not allocate when the value is already known. The table is
+ * open-addressed and filled with CAS, so parser threads can intern concurrently without
+ * locking. Growing marks each empty slot of the old table as moved before copying it, so a
+ * concurrent insert either lands in time to be copied or retries in the new table; no value
+ * is lost, and size() counts each one once.
+ * Once MAX_SIZE values are held, new values are returned as fresh strings without being
+ * remembered, which keeps a column that turns out not to repeat from growing without bound.
+ */
+public final class StringDictionary {
+    private static final int MAX_SIZE = 1 << 16;
+    private static final int INITIAL_CAPACITY = 64;
+    // Fills the empty slots of a table that has been copied; compared by identity
+    private static final String MOVED = new String("moved");
+    
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile AtomicReferenceArray<String> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    
+    public int size() {
+        return size.get();
+    }
+    
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        while (true) {
+            AtomicReferenceArray<String> current = table;
+            int mask = current.length() - 1;
+            for (int i = spread(value.hashCode()) & mask; ; i = (i + 1) & mask) {
+                String existing = current.get(i);
+                if (existing == null) {
+                    if (size.get() >= MAX_SIZE) {
+                        return value;
+                    }
+                    if (current.compareAndSet(i, null, value)) {
+                        added(current);
+                        return value;
+                    }
+                    existing = current.get(i);
+                }
+                if (existing == MOVED) {
+                    awaitGrown();
+                    break; // Probe the new table
+                }
+                if (existing.equals(value)) {
+                    return existing;
+                }
+            }
+        }
+    }
+    
+    // The value of chars[start, end), shared when it was seen before
+    String intern(char[] chars, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i]; // Same as String.hashCode
+        }
+        while (true) {
+            AtomicReferenceArray<String> current = table;
+            int mask = current.length() - 1;
+            for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+                String existing = current.get(i);
+                if (existing == null) {
+                    String value = new String(chars, start, end - start);
+                    if (size.get() >= MAX_SIZE) {
+                        return value;
+                    }
+                    if (current.compareAndSet(i, null, value)) {
+                        added(current);
+                        return value;
+                    }
+                    existing = current.get(i);
+                }
+                if (existing == MOVED) {
+                    awaitGrown();
+                    break;
+                }
+                if (matches(existing, chars, start, end)) {
+                    return existing;
+                }
+            }
+        }
+    }
+    
+    private static boolean matches(String value, char[] chars, int start, int end) {
+        if (value.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+    
+    // Keeps the table at most half full so a probe always reaches an empty slot
+    private void added(AtomicReferenceArray<String> current) {
+        if (size.incrementAndGet() * 2 > current.length()) {
+            grow(current);
+        }
+    }
+    
+    private synchronized void grow(AtomicReferenceArray<String> current) {
+        if (table != current) {
+            return;
+        }
+        AtomicReferenceArray<String> grown = new AtomicReferenceArray<>(current.length() * 2);
+        int mask = grown.length() - 1;
+        for (int i = 0; i < current.length(); i++) {
+            // Once marked, no insert can land in this slot; one that got in first is copied
+            String value = current.get(i);
+            if (value == null && current.compareAndSet(i, null, MOVED)) {
+                continue;
+            }
+            value = current.get(i);
+            int slot = spread(value.hashCode()) & mask;
+            while (grown.get(slot) != null) {
+                slot = (slot + 1) & mask;
+            }
+            grown.set(slot, value);
+        }
+        table = grown;
+    }
+    
+    // Returns once the grow that marked a slot as moved has published the new table
+    private synchronized void awaitGrown() {
+    }
+}
@@ -0,0 +1,50 @@
+package mentcare.utils;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared out by key hash, so updates to the same record are serialized
+ * while updates to different records mostly take different locks. A batch locks the stripes
+ * of all its keys in stripe order, so two overlapping batches cannot deadlock.
+ */
+public final class StripedLock {
+    private final ReentrantLock[] stripes;
+    
+    // stripes is rounded up to a power of two
+    public StripedLock(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+    
+    public void lock(String key) {
+        stripes[stripeOf(key)].lock();
+    }
+    
+    public void unlock(String key) {
+        stripes[stripeOf(key)].unlock();
+    }
+    
+    // Locks every stripe the keys fall in; pass the result to unlockAll
+    public int[] lockAll(Collection<String> keys) {
+        int[] held = keys.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        for (int i = 0; i < held.length; i++) {
+            stripes[held[i]].lock();
+        }
+        return held;
+    }
+    
+    public void unlockAll(int[] held) {
+        for (int i = held.length - 1; i >= 0; i--) {
+            stripes[held[i]].unlock();
+        }
+    }
+    
+    private int stripeOf(String key) {
+        int hash = key != null ? key.hashCode() : 0;
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
@@ -6,5 +6,12 @@
  */
 module mentcare_system {
     requires java.desktop;  // This includes Swing
-
-}
\ No newline at end of file
+    requires java.sql;      // JDBC storage backend; the driver is found at run time
+    
+    // Storage backends for the DAO layer, selected with -Dmentcare.storage=<name>
+    uses mentcare.dao.spi.StorageProvider;
+    provides mentcare.dao.spi.StorageProvider with
+        mentcare.dao.csv.CSVStorageProvider,
+        mentcare.dao.csv.PartitionedCSVStorageProvider,
+        mentcare.dao.jdbc.JDBCStorageProvider;
+}